@@ -0,0 +1,109 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.preference.PreferenceManager;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.jdemaagd.brilhodosol.R;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-call cost of AppPreferences reads and of the preference writes of a sync
+ * The *SharedPreferences / *ApplyEach cases replay the implementation the snapshot and the
+ *      batched editor replaced, as the baseline to compare with
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppPreferencesBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+
+    /* Keeps the results of the reads alive */
+    private boolean mSink;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AppPreferences.reloadSnapshot(mContext);
+    }
+
+    @Test
+    public void readSnapshot() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        boolean metric = false;
+        while (state.keepRunning()) {
+            metric ^= AppPreferences.isMetric(mContext);
+            metric ^= AppPreferences.areNotificationsEnabled(mContext);
+            metric ^= AppPreferences.getPreferredWeatherLocation(mContext).isEmpty();
+        }
+        mSink = metric;
+    }
+
+    @Test
+    public void readSharedPreferences() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        boolean metric = false;
+        while (state.keepRunning()) {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+            String metricUnits = mContext.getString(R.string.pref_units_metric);
+            metric ^= metricUnits.equals(prefs.getString(
+                    mContext.getString(R.string.pref_units_key), metricUnits));
+
+            prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+            metric ^= prefs.getBoolean(
+                    mContext.getString(R.string.pref_enable_notifications_key),
+                    mContext.getResources().getBoolean(R.bool.show_notifications_by_default));
+
+            prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+            metric ^= prefs.getString(
+                    mContext.getString(R.string.pref_location_key),
+                    mContext.getString(R.string.pref_location_default)).isEmpty();
+        }
+        mSink = metric;
+    }
+
+    /* Writes of a sync: coordinates, notification time, one apply at the end of the batch */
+    @Test
+    public void writeSyncBatch() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        long time = 0;
+        while (state.keepRunning()) {
+            AppPreferences.beginBatch();
+            AppPreferences.setLocationDetails(mContext, 42.278210, -83.745670);
+            AppPreferences.saveLastNotificationTime(mContext, ++time);
+            AppPreferences.endBatch();
+        }
+        assertEquals(time, AppPreferences.getLastNotificationTimeInMillis(mContext));
+    }
+
+    @Test
+    public void writeApplyEach() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        String lastNotificationKey = mContext.getString(R.string.pref_last_notification);
+        long time = 0;
+        while (state.keepRunning()) {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+            prefs.edit()
+                    .putLong(AppPreferences.PREF_COORD_LAT, Double.doubleToRawLongBits(42.278210))
+                    .putLong(AppPreferences.PREF_COORD_LONG, Double.doubleToRawLongBits(-83.745670))
+                    .apply();
+
+            prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+            prefs.edit().putLong(lastNotificationKey, ++time).apply();
+        }
+        assertTrue(time > 0);
+    }
+}
@@ -0,0 +1,161 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Latency of the forecast list query while syncs keep writing forecasts
+ * The rollback journal cases are the baseline: there the list query waits for the write
+ *      transaction of the sync, with WAL it reads the last committed snapshot instead
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherQueryBenchmark {
+
+    private static final String DATABASE_NAME = "weather_benchmark.db";
+
+    private static final long LOCATION_ID = 1;
+    private static final long FIRST_DAY = 18500;
+    private static final int FORECAST_DAYS = 14;
+
+    /* How long a simulated sync holds its write transaction, i.e. a slow replaceForecast */
+    private static final long WRITE_TRANSACTION_MILLIS = 5;
+
+    /* Same statement as the list of MainActivity, through WeatherProvider's projection map */
+    private static final String SQL_FORECAST_LIST =
+            "SELECT day * 86400000 AS date, max, min, weather_id FROM weather"
+                    + " WHERE location_id = ? AND day >= ? ORDER BY day ASC";
+
+    private static final String SQL_UPSERT_DAY =
+            "INSERT OR REPLACE INTO weather (location_id, day, weather_id, min, max, humidity,"
+                    + " pressure, wind, degrees) VALUES (?, ?, ?, ?, ?, 80, 1013, 3.5, 270)";
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private WeatherDbHelper mDbHelper;
+    private Thread mWriter;
+    private volatile boolean mWriting;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        stopWriter();
+        if (mDbHelper != null) mDbHelper.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void listQuery_wal_idle() {
+        openDatabase(true);
+        measureListQuery();
+    }
+
+    @Test
+    public void listQuery_wal_whileSyncWrites() {
+        openDatabase(true);
+        startWriter();
+        measureListQuery();
+    }
+
+    @Test
+    public void listQuery_rollbackJournal_whileSyncWrites() {
+        openDatabase(false);
+        startWriter();
+        measureListQuery();
+    }
+
+    private void measureListQuery() {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        String[] selectionArgs = {Long.toString(LOCATION_ID), Long.toString(FIRST_DAY)};
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            Cursor cursor = db.rawQuery(SQL_FORECAST_LIST, selectionArgs);
+            try {
+                // getCount fills the window, as the list adapter does
+                assertEquals(FORECAST_DAYS, cursor.getCount());
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
+    private void openDatabase(boolean writeAheadLogging) {
+        mDbHelper = new WeatherDbHelper(mContext, DATABASE_NAME);
+        mDbHelper.setWriteAheadLoggingEnabled(writeAheadLogging);
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.execSQL("INSERT INTO location (_id, location_setting) VALUES (?, ?)",
+                new Object[]{LOCATION_ID, "Benchmark"});
+        writeForecast(db, 0);
+    }
+
+    /*
+     * Rewrites the forecast in a loop the way WeatherProvider#replaceForecast does:
+     * one IMMEDIATE transaction per sync, held for a few milliseconds
+     */
+    private void startWriter() {
+        final SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        mWriting = true;
+        mWriter = new Thread(() -> {
+            int sync = 0;
+            while (mWriting) {
+                db.beginTransactionNonExclusive();
+                try {
+                    writeForecast(db, ++sync);
+                    SystemClock.sleep(WRITE_TRANSACTION_MILLIS);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        }, "benchmark-sync-writer");
+        mWriter.start();
+    }
+
+    private void stopWriter() throws InterruptedException {
+        mWriting = false;
+        if (mWriter != null) {
+            mWriter.join();
+            mWriter = null;
+        }
+    }
+
+    private static void writeForecast(SQLiteDatabase db, int sync) {
+        SQLiteStatement upsert = db.compileStatement(SQL_UPSERT_DAY);
+        try {
+            for (int i = 0; i < FORECAST_DAYS; i++) {
+                upsert.bindLong(1, LOCATION_ID);
+                upsert.bindLong(2, FIRST_DAY + i);
+                upsert.bindLong(3, 800 + (sync + i) % 4);
+                upsert.bindDouble(4, 10 + sync % 3);
+                upsert.bindDouble(5, 20 + sync % 3);
+                upsert.executeInsert();
+            }
+        } finally {
+            upsert.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.jdemaagd.brilhodosol.R;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of labelling the days of a forecast list, as a bind of every row does
+ * uncachedLabels replays the implementation DateLabelCache replaced, as the baseline
+ */
+@RunWith(AndroidJUnit4.class)
+public class FriendlyDateBenchmark {
+
+    private static final int FORECAST_DAYS = 14;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private long[] mDates;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        long today = AppDateUtils.getNormalizedUtcDateForToday();
+        mDates = new long[FORECAST_DAYS];
+        for (int i = 0; i < FORECAST_DAYS; i++) {
+            mDates[i] = today + i * AppDateUtils.DAY_IN_MILLIS;
+        }
+    }
+
+    @Test
+    public void cachedLabels() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int length = 0;
+        while (state.keepRunning()) {
+            for (long date : mDates) {
+                length += AppDateUtils.getFriendlyDateString(mContext, date, false).length();
+            }
+        }
+        assertTrue(length > 0);
+    }
+
+    @Test
+    public void uncachedLabels() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int length = 0;
+        while (state.keepRunning()) {
+            for (long date : mDates) {
+                length += getFriendlyDateStringUncached(mContext, date, false).length();
+            }
+        }
+        assertTrue(length > 0);
+    }
+
+    /*
+     * AppDateUtils#getFriendlyDateString before DateLabelCache: resolves the time zone, builds
+     * SimpleDateFormats and formats with DateUtils on every call
+     */
+    private static String getFriendlyDateStringUncached(Context context, long dateInMillis,
+                                                        boolean showFullDate) {
+        long localDate = AppDateUtils.getLocalDateFromUTC(dateInMillis);
+        long dayNumber = AppDateUtils.getDayNumber(localDate);
+        long currentDayNumber = AppDateUtils.getDayNumber(System.currentTimeMillis());
+
+        if (dayNumber == currentDayNumber || showFullDate) {
+            String dayName = getDayName(context, localDate);
+            String readableDate = DateUtils.formatDateTime(context, localDate,
+                    DateUtils.FORMAT_SHOW_DATE
+                            | DateUtils.FORMAT_NO_YEAR
+                            | DateUtils.FORMAT_SHOW_WEEKDAY);
+            if (dayNumber - currentDayNumber < 2) {
+                String localizedDayName = new SimpleDateFormat("EEEE").format(localDate);
+                return readableDate.replace(localizedDayName, dayName);
+            } else {
+                return readableDate;
+            }
+        } else if (dayNumber < currentDayNumber + 7) {
+            return getDayName(context, localDate);
+        } else {
+            int flags = DateUtils.FORMAT_SHOW_DATE
+                    | DateUtils.FORMAT_NO_YEAR
+                    | DateUtils.FORMAT_ABBREV_ALL
+                    | DateUtils.FORMAT_SHOW_WEEKDAY;
+
+            return DateUtils.formatDateTime(context, localDate, flags);
+        }
+    }
+
+    private static String getDayName(Context context, long dateInMillis) {
+        long dayNumber = AppDateUtils.getDayNumber(dateInMillis);
+        long currentDayNumber = AppDateUtils.getDayNumber(System.currentTimeMillis());
+        if (dayNumber == currentDayNumber) {
+            return context.getString(R.string.today);
+        } else if (dayNumber == currentDayNumber + 1) {
+            return context.getString(R.string.tomorrow);
+        } else {
+            return new SimpleDateFormat("EEEE").format(dateInMillis);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of the condition lookups of a forecast list bind, tables against the chains they
+ *      replaced ({@link LegacyWeatherUtils})
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherUtilsBenchmark {
+
+    /* Conditions of a typical 14 day forecast */
+    private static final int[] WEATHER_IDS = {
+            800, 801, 802, 500, 501, 804, 803, 800, 600, 701, 211, 300, 761, 800
+    };
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+
+    @Test
+    public void lookup_tables() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int sink = 0;
+        while (state.keepRunning()) {
+            for (int weatherId : WEATHER_IDS) {
+                sink += WeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId);
+                sink += WeatherUtils.getStringForWeatherCondition(mContext, weatherId).length();
+            }
+        }
+        assertTrue(sink != 0);
+    }
+
+    @Test
+    public void lookup_legacyChains() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int sink = 0;
+        while (state.keepRunning()) {
+            for (int weatherId : WEATHER_IDS) {
+                sink += LegacyWeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId);
+                sink += LegacyWeatherUtils.getStringForWeatherCondition(mContext, weatherId)
+                        .length();
+            }
+        }
+        assertTrue(sink != 0);
+    }
+
+    @Test
+    public void compassDirection_arithmetic() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int sink = 0;
+        float degrees = 0;
+        while (state.keepRunning()) {
+            sink += WeatherUtils.getCompassDirection(degrees).length();
+            degrees = degrees >= 360 ? 0 : degrees + 7.5f;
+        }
+        assertTrue(sink != 0);
+    }
+
+    @Test
+    public void compassDirection_legacyChain() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int sink = 0;
+        float degrees = 0;
+        while (state.keepRunning()) {
+            sink += LegacyWeatherUtils.getCompassDirection(degrees).length();
+            degrees = degrees >= 360 ? 0 : degrees + 7.5f;
+        }
+        assertTrue(sink != 0);
+    }
+}
@@ -2,6 +2,8 @@ package com.jdemaagd.brilhodosol;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,20 +11,42 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.jdemaagd.brilhodosol.utils.AppDateUtils;
-import com.jdemaagd.brilhodosol.utils.WeatherUtils;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * {@link ForecastAdapter} exposes a list of weather forecasts
  * from a {@link android.database.Cursor} to a {@link androidx.recyclerview.widget.RecyclerView}.
+ * <p>
+ * Rows are copied out of each loaded cursor, turned into immutable {@link ForecastItem}
+ *      display models and diffed against the displayed list on a background thread,
+ *      so only changed rows are rebound or animated and binding does no formatting.
+ *      Item ids are the forecast dates, which are unique within the list.
  */
 class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder> {
 
     private static final int VIEW_TYPE_TODAY = 0;
     private static final int VIEW_TYPE_FUTURE_DAY = 1;
 
+    /*
+     * Display models are built and diffed one list at a time, off the main thread,
+     * a newer list supersedes a pending one
+     */
+    private static final Executor sBackgroundExecutor =
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "brilhodosol-forecast-presenter");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
     private final Context mContext;
 
     final private ForecastAdapterOnClickHandler mClickHandler;
@@ -36,7 +60,10 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
 
     private boolean mUseTodayLayout;
 
-    private Cursor mCursor;
+    private List<ForecastItem> mItems = Collections.emptyList();
+
+    /* Incremented by every swap, a diff result is only applied if no swap happened meanwhile */
+    private int mSwapGeneration;
 
     /**
      * ForecastAdapter Constructor
@@ -49,6 +76,8 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         mContext = context;
         mClickHandler = clickHandler;
         mUseTodayLayout = mContext.getResources().getBoolean(R.bool.use_today_layout);
+
+        setHasStableIds(true);
     }
 
     /**
@@ -95,48 +124,20 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
      */
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
-        mCursor.moveToPosition(position);
-
-        int weatherId = mCursor.getInt(MainActivity.INDEX_WEATHER_CONDITION_ID);
-        int weatherImageId;
+        ForecastItem item = mItems.get(position);
 
-        int viewType = getItemViewType(position);
-
-        switch (viewType) {
-            case VIEW_TYPE_TODAY:
-                weatherImageId = WeatherUtils
-                        .getLargeArtResourceIdForWeatherCondition(weatherId);
-                break;
-            case VIEW_TYPE_FUTURE_DAY:
-                weatherImageId = WeatherUtils
-                        .getSmallArtResourceIdForWeatherCondition(weatherId);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid view type, value of " + viewType);
-        }
+        forecastAdapterViewHolder.iconView.setImageResource(item.iconResId);
 
-        forecastAdapterViewHolder.iconView.setImageResource(weatherImageId);
+        forecastAdapterViewHolder.dateView.setText(item.dateText);
 
-        long dateInMillis = mCursor.getLong(MainActivity.INDEX_WEATHER_DATE);
-        String dateString = AppDateUtils.getFriendlyDateString(mContext, dateInMillis, false);
-        forecastAdapterViewHolder.dateView.setText(dateString);
+        forecastAdapterViewHolder.descriptionView.setText(item.description);
+        forecastAdapterViewHolder.descriptionView.setContentDescription(item.descriptionA11y);
 
-        String description = WeatherUtils.getStringForWeatherCondition(mContext, weatherId);
-        String descriptionA11y = mContext.getString(R.string.a11y_forecast, description);
-        forecastAdapterViewHolder.descriptionView.setText(description);
-        forecastAdapterViewHolder.descriptionView.setContentDescription(descriptionA11y);
+        forecastAdapterViewHolder.highTempView.setText(item.highText);
+        forecastAdapterViewHolder.highTempView.setContentDescription(item.highA11y);
 
-        double highInCelsius = mCursor.getDouble(MainActivity.INDEX_WEATHER_MAX_TEMP);
-        String highString = WeatherUtils.formatTemperature(mContext, highInCelsius);
-        String highA11y = mContext.getString(R.string.a11y_high_temp, highString);
-        forecastAdapterViewHolder.highTempView.setText(highString);
-        forecastAdapterViewHolder.highTempView.setContentDescription(highA11y);
-
-        double lowInCelsius = mCursor.getDouble(MainActivity.INDEX_WEATHER_MIN_TEMP);
-        String lowString = WeatherUtils.formatTemperature(mContext, lowInCelsius);
-        String lowA11y = mContext.getString(R.string.a11y_low_temp, lowString);
-        forecastAdapterViewHolder.lowTempView.setText(lowString);
-        forecastAdapterViewHolder.lowTempView.setContentDescription(lowA11y);
+        forecastAdapterViewHolder.lowTempView.setText(item.lowText);
+        forecastAdapterViewHolder.lowTempView.setContentDescription(item.lowA11y);
     }
 
     /**
@@ -147,9 +148,18 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
      */
     @Override
     public int getItemCount() {
-        if (null == mCursor) return 0;
+        return mItems.size();
+    }
 
-        return mCursor.getCount();
+    /**
+     * Returns stable id of item at given position, its forecast date
+     *
+     * @param position index within our RecyclerView
+     * @return normalized UTC date of the forecast
+     */
+    @Override
+    public long getItemId(int position) {
+        return mItems.get(position).date;
     }
 
     /**
@@ -172,14 +182,45 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
      * Swaps cursor used by ForecastAdapter for its weather data
      * Called by MainActivity after a load has finished,
      *      as well as when Loader responsible for loading weather data is reset
-     * When called we assume we have a completely new set of data
-     *      so we call notifyDataSetChanged to tell RecyclerView to update
+     * <p>
+     * Rows are copied right away, the loader owns the cursor and may close it on the next load.
+     *      Its window was filled on the loader thread, so copying a few rows is cheap.
+     *      Display models and the diff are computed on the background thread and dispatched
+     *      on the main thread, unless another swap happened meanwhile.
      *
-     * @param newCursor new cursor to use as ForecastAdapter data source
+     * @param newCursor new cursor to use as ForecastAdapter data source, null to clear
      */
     void swapCursor(Cursor newCursor) {
-        mCursor = newCursor;
-        notifyDataSetChanged();
+        final int generation = ++mSwapGeneration;
+        final List<ForecastItem> oldItems = mItems;
+
+        if (newCursor == null || newCursor.getCount() == 0) {
+            mItems = Collections.emptyList();
+            if (!oldItems.isEmpty()) notifyItemRangeRemoved(0, oldItems.size());
+            return;
+        }
+
+        final ForecastRows rows = ForecastRows.fromCursor(newCursor);
+        final Context appContext = mContext.getApplicationContext();
+        final boolean useTodayLayout = mUseTodayLayout;
+
+        sBackgroundExecutor.execute(() -> {
+            final List<ForecastItem> newItems =
+                    ForecastItem.present(appContext, rows, useTodayLayout);
+            final DiffUtil.DiffResult diffResult = oldItems.isEmpty()
+                    ? null : DiffUtil.calculateDiff(new ForecastDiffCallback(oldItems, newItems));
+
+            mMainHandler.post(() -> {
+                if (generation != mSwapGeneration) return;
+
+                mItems = newItems;
+                if (diffResult == null) {
+                    notifyItemRangeInserted(0, newItems.size());
+                } else {
+                    diffResult.dispatchUpdatesTo(ForecastAdapter.this);
+                }
+            });
+        });
     }
 
     /**
@@ -216,10 +257,79 @@ class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapt
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            mCursor.moveToPosition(adapterPosition);
+            if (adapterPosition == RecyclerView.NO_POSITION) return;
 
-            long dateInMillis = mCursor.getLong(MainActivity.INDEX_WEATHER_DATE);
+            long dateInMillis = mItems.get(adapterPosition).date;
             mClickHandler.onClick(dateInMillis);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Values of a loaded cursor queried with MainActivity.MAIN_FORECAST_PROJECTION,
+     *      copied on the main thread and handed to the background thread
+     */
+    static final class ForecastRows {
+
+        final long[] dates;
+        final int[] weatherIds;
+        final double[] maxTemps;
+        final double[] minTemps;
+
+        private ForecastRows(int count) {
+            dates = new long[count];
+            weatherIds = new int[count];
+            maxTemps = new double[count];
+            minTemps = new double[count];
+        }
+
+        static ForecastRows fromCursor(Cursor cursor) {
+            ForecastRows rows = new ForecastRows(cursor.getCount());
+            for (int i = 0; i < rows.size() && cursor.moveToPosition(i); i++) {
+                rows.dates[i] = cursor.getLong(MainActivity.INDEX_WEATHER_DATE);
+                rows.weatherIds[i] = cursor.getInt(MainActivity.INDEX_WEATHER_CONDITION_ID);
+                rows.maxTemps[i] = cursor.getDouble(MainActivity.INDEX_WEATHER_MAX_TEMP);
+                rows.minTemps[i] = cursor.getDouble(MainActivity.INDEX_WEATHER_MIN_TEMP);
+            }
+
+            return rows;
+        }
+
+        int size() {
+            return dates.length;
+        }
+    }
+
+    /**
+     * Matches rows by date, a row is rebound when anything it displays changes
+     */
+    private static final class ForecastDiffCallback extends DiffUtil.Callback {
+
+        private final List<ForecastItem> mOldItems;
+        private final List<ForecastItem> mNewItems;
+
+        ForecastDiffCallback(List<ForecastItem> oldItems, List<ForecastItem> newItems) {
+            mOldItems = oldItems;
+            mNewItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).date == mNewItems.get(newItemPosition).date;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldItems.get(oldItemPosition).hasSameContents(mNewItems.get(newItemPosition));
+        }
+    }
+}
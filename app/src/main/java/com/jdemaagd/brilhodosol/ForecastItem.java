@@ -0,0 +1,101 @@
+package com.jdemaagd.brilhodosol;
+
+import android.content.Context;
+
+import com.jdemaagd.brilhodosol.data.AppPreferences;
+import com.jdemaagd.brilhodosol.utils.AppDateUtils;
+import com.jdemaagd.brilhodosol.utils.WeatherUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Display model of one forecast row, immutable
+ * Every string and resource a row shows is resolved when data loads, on a background thread,
+ *      so binding a row only sets views
+ * <p>
+ * Two items with the same contents display the same, which is what ForecastAdapter diffs on.
+ *      A units change or a day rollover changes the strings, so those rows are rebound too.
+ */
+final class ForecastItem {
+
+    final long date;
+
+    final int iconResId;
+
+    final String dateText;
+    final String description;
+    final String descriptionA11y;
+    final String highText;
+    final String highA11y;
+    final String lowText;
+    final String lowA11y;
+
+    private ForecastItem(long date, int iconResId, String dateText, String description,
+                         String descriptionA11y, String highText, String highA11y,
+                         String lowText, String lowA11y) {
+        this.date = date;
+        this.iconResId = iconResId;
+        this.dateText = dateText;
+        this.description = description;
+        this.descriptionA11y = descriptionA11y;
+        this.highText = highText;
+        this.highA11y = highA11y;
+        this.lowText = lowText;
+        this.lowA11y = lowA11y;
+    }
+
+    /**
+     * Builds the display models of a forecast, meant to run off the main thread
+     * Units are read once for the whole list
+     *
+     * @param context        Used for resources and preferences, an application context
+     * @param rows           Rows copied from the loaded cursor
+     * @param useTodayLayout Whether the first row uses the today layout and its large art
+     * @return Immutable list of items, in the order of the rows
+     */
+    static List<ForecastItem> present(Context context, ForecastAdapter.ForecastRows rows,
+                                      boolean useTodayLayout) {
+        boolean isMetric = AppPreferences.isMetric(context);
+
+        List<ForecastItem> items = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            int weatherId = rows.weatherIds[i];
+            int iconResId = useTodayLayout && i == 0
+                    ? WeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId)
+                    : WeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId);
+
+            String dateText = AppDateUtils.getFriendlyDateString(context, rows.dates[i], false);
+
+            String description = WeatherUtils.getStringForWeatherCondition(context, weatherId);
+            String descriptionA11y = context.getString(R.string.a11y_forecast, description);
+
+            String highText = WeatherUtils.formatTemperature(context, rows.maxTemps[i], isMetric);
+            String highA11y = context.getString(R.string.a11y_high_temp, highText);
+
+            String lowText = WeatherUtils.formatTemperature(context, rows.minTemps[i], isMetric);
+            String lowA11y = context.getString(R.string.a11y_low_temp, lowText);
+
+            items.add(new ForecastItem(rows.dates[i], iconResId, dateText, description,
+                    descriptionA11y, highText, highA11y, lowText, lowA11y));
+        }
+
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @param other Item of the same date
+     * @return true if both items display the same
+     */
+    boolean hasSameContents(ForecastItem other) {
+        return iconResId == other.iconResId
+                && dateText.equals(other.dateText)
+                && description.equals(other.description)
+                && descriptionA11y.equals(other.descriptionA11y)
+                && highText.equals(other.highText)
+                && highA11y.equals(other.highA11y)
+                && lowText.equals(other.lowText)
+                && lowA11y.equals(other.lowA11y);
+    }
+}
@@ -53,8 +53,6 @@ public class MainActivity extends AppCompatActivity implements
     private ProgressBar mLoadingIndicator;
     private RecyclerView mRecyclerView;
 
-    private int mPosition = RecyclerView.NO_POSITION;
-
     /**
      * Respond to clicks from list
      *
@@ -117,18 +115,19 @@ public class MainActivity extends AppCompatActivity implements
                 // URI for all rows of weather data in our weather table
                 Uri forecastQueryUri = WeatherEntry.CONTENT_URI;
 
-                // Sort order: Ascending by date
-                String sortOrder = WeatherEntry.COLUMN_DATE + " ASC";
+                // Sort order: Ascending by date, the day key is the table's primary key order
+                String sortOrder = WeatherEntry.COLUMN_DAY + " ASC";
 
                 // A SELECTION in SQL declares which rows to return
                 // Get all weather data from today onwards that is stored in weather table
                 String selection = WeatherEntry.getSqlSelectForTodayOnwards();
+                String[] selectionArgs = WeatherEntry.getSqlSelectArgsForTodayOnwards();
 
                 return new CursorLoader(this,
                         forecastQueryUri,
                         MAIN_FORECAST_PROJECTION,
                         selection,
-                        null,
+                        selectionArgs,
                         sortOrder);
             default:
                 throw new RuntimeException("Loader Not Implemented: " + loaderId);
@@ -151,12 +150,9 @@ public class MainActivity extends AppCompatActivity implements
      */
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        // Only changed rows are updated, the scroll position is kept across reloads
         mForecastAdapter.swapCursor(data);
 
-        if (mPosition == RecyclerView.NO_POSITION) mPosition = 0;
-
-        mRecyclerView.smoothScrollToPosition(mPosition);
-
         if (data.getCount() != 0) showWeatherDataView();
     }
 
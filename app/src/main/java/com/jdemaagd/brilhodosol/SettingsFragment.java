@@ -46,6 +46,8 @@ public class SettingsFragment extends PreferenceFragmentCompat
 
         if (key.equals(getString(R.string.pref_location_key))) {
             AppPreferences.resetLocationCoordinates(activity);
+            // Forecast already stored for the new location is shown right away
+            activity.getContentResolver().notifyChange(WeatherEntry.CONTENT_URI, null);
             BrilhodoSolSyncUtils.startImmediateSync(activity);
         } else if (key.equals(getString(R.string.pref_units_key))) {
             activity.getContentResolver().notifyChange(WeatherEntry.CONTENT_URI, null);
@@ -63,15 +65,14 @@ public class SettingsFragment extends PreferenceFragmentCompat
     @Override
     public void onStart() {
         super.onStart();
-        getPreferenceScreen().getSharedPreferences()
-                .registerOnSharedPreferenceChangeListener(this);
+        // Called once AppPreferences has the new value, a sync started on a change reads it
+        AppPreferences.registerOnChangeListener(getActivity(), this);
     }
 
     @Override
     public void onStop() {
         super.onStop();
-        getPreferenceScreen().getSharedPreferences()
-                .unregisterOnSharedPreferenceChangeListener(this);
+        AppPreferences.unregisterOnChangeListener(this);
     }
 
     private void setPreferenceSummary(Preference preference, Object value) {
@@ -7,6 +7,22 @@ import androidx.preference.PreferenceManager;
 
 import com.jdemaagd.brilhodosol.R;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Typed access to the app's default SharedPreferences
+ * <p>
+ * Getters read an immutable {@link Snapshot} of the values, a single volatile field load,
+ *      instead of resolving keys and parsing strings on every call. The snapshot is built on
+ *      first use and replaced by an OnSharedPreferenceChangeListener whenever a value changes.
+ *      Listeners registered with {@link #registerOnChangeListener} run after that replacement,
+ *      so they always read the new value through the getters.
+ * <p>
+ * Writes update the snapshot right away and are applied right away, except on a thread that
+ *      opened a batch with {@link #beginBatch()}: there they are held in a single editor that
+ *      {@link #endBatch()} applies, so the writes of a sync cost one apply at its end.
+ */
 public class AppPreferences {
 
     public static final String PREF_CITY_NAME = "Ann Arbor";
@@ -20,6 +36,26 @@ public class AppPreferences {
     private static final String DEFAULT_MAP_LOCATION =
             "343 South Fifth Avenue, Ann Arbor, MI 48104";
 
+    private static final Object sLock = new Object();
+
+    private static volatile Snapshot sSnapshot;
+
+    /* Application scoped, set with the first snapshot */
+    private static SharedPreferences sPrefs;
+
+    /* Strong reference, SharedPreferences only holds weak references to its listeners */
+    private static SharedPreferences.OnSharedPreferenceChangeListener sSnapshotUpdater;
+
+    /* Listeners called once the snapshot holds the changed value */
+    private static final List<SharedPreferences.OnSharedPreferenceChangeListener> sListeners =
+            new CopyOnWriteArrayList<>();
+
+    /* Batch opened by the calling thread, null outside a batch */
+    private static final ThreadLocal<Batch> sBatch = new ThreadLocal<>();
+
+    /* Editors holding writes whose apply has not returned yet, all threads, guarded by sLock */
+    private static int sUnappliedEditors;
+
     /**
      * Get user notifications preference
      *
@@ -27,18 +63,7 @@ public class AppPreferences {
      * @return true if user prefers to see notifications
      */
     public static boolean areNotificationsEnabled(Context context) {
-        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
-
-        boolean shouldDisplayNotificationsByDefault = context
-                .getResources()
-                .getBoolean(R.bool.show_notifications_by_default);
-
-        SharedPreferences prefs = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
-
-        boolean shouldDisplayNotifications = prefs
-                .getBoolean(displayNotificationsKey, shouldDisplayNotificationsByDefault);
-
-        return shouldDisplayNotifications;
+        return getSnapshot(context).notificationsEnabled;
     }
 
     public static double[] getDefaultWeatherCoordinates() {
@@ -66,12 +91,7 @@ public class AppPreferences {
      * @return UNIX time of when the last notification was shown
      */
     public static long getLastNotificationTimeInMillis(Context context) {
-        String lastNotificationKey = context.getString(R.string.pref_last_notification);
-
-        SharedPreferences prefs = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
-        long lastNotificationTime = prefs.getLong(lastNotificationKey, 0);
-
-        return lastNotificationTime;
+        return getSnapshot(context).lastNotificationTimeMillis;
     }
 
     /**
@@ -93,12 +113,7 @@ public class AppPreferences {
      * @return Location The current user has set in SharedPreferences
      */
     public static String getPreferredWeatherLocation(Context context) {
-        SharedPreferences prefs = PreferenceManager
-                .getDefaultSharedPreferences(context);
-        String keyForLocation = context.getString(R.string.pref_location_key);
-        String defaultLocation = context.getString(R.string.pref_location_default);
-
-        return prefs.getString(keyForLocation, defaultLocation);
+        return getSnapshot(context).preferredLocation;
     }
 
     /**
@@ -111,6 +126,16 @@ public class AppPreferences {
         return false;
     }
 
+    /**
+     * Returns number of past days of weather kept in the archive
+     *
+     * @param context Context used to get the SharedPreferences
+     * @return Retention window in days
+     */
+    public static int getHistoryRetentionDays(Context context) {
+        return getSnapshot(context).historyRetentionDays;
+    }
+
     /**
      * Returns true if the user has selected metric temperature display
      *
@@ -118,66 +143,298 @@ public class AppPreferences {
      * @return true If metric display should be used
      */
     public static boolean isMetric(Context context) {
-        SharedPreferences prefs = PreferenceManager
-                .getDefaultSharedPreferences(context);
-
-        String keyForUnits = context.getString(R.string.pref_units_key);
-        String defaultUnits = context.getString(R.string.pref_units_metric);
-        String preferredUnits = prefs.getString(keyForUnits, defaultUnits);
-        String metric = context.getString(R.string.pref_units_metric);
-
-        boolean userPrefersMetric;
-
-        if (metric.equals(preferredUnits)) {
-            userPrefersMetric = true;
-        } else {
-            userPrefersMetric = false;
-        }
-
-        return userPrefersMetric;
+        return getSnapshot(context).isMetric;
     }
 
     /**
      * Resets stored location coordinates
+     * Applied right away, or at {@link #endBatch()} inside a batch
      *
      * @param context Context used to get the SharedPreferences
      */
     public static void resetLocationCoordinates(Context context) {
-        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
-        SharedPreferences.Editor editor = sp.edit();
+        getSnapshot(context);
+
+        SharedPreferences.Editor editor;
+        synchronized (sLock) {
+            editor = getEditor();
 
-        editor.remove(PREF_COORD_LAT);
-        editor.remove(PREF_COORD_LONG);
-        editor.apply();
+            editor.remove(PREF_COORD_LAT);
+            editor.remove(PREF_COORD_LONG);
+        }
+        applyUnlessBatched(editor);
     }
 
     /**
      * Saves time that notification is shown
+     * Getters see it right away, it is stored right away or at {@link #endBatch()}
      *
      * @param context Used to access SharedPreferences
      * @param timeOfNotification Time of last notification to save (in UNIX time)
      */
     public static void saveLastNotificationTime(Context context, long timeOfNotification) {
-        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
-        SharedPreferences.Editor editor = sp.edit();
-        String lastNotificationKey = context.getString(R.string.pref_last_notification);
-        editor.putLong(lastNotificationKey, timeOfNotification);
-        editor.apply();
+        Snapshot snapshot = getSnapshot(context);
+
+        SharedPreferences.Editor editor;
+        synchronized (sLock) {
+            editor = getEditor();
+
+            editor.putLong(snapshot.keys.lastNotification, timeOfNotification);
+            sSnapshot = sSnapshot.withLastNotificationTime(timeOfNotification);
+        }
+        applyUnlessBatched(editor);
     }
 
     /**
      * Handle setting location details in Preferences
+     * Applied right away, or at {@link #endBatch()} inside a batch
      *
      * @param context  Context used to get the SharedPreferences
      * @param lat      the latitude of the city
      * @param lon      the longitude of the city
      */
     public static void setLocationDetails(Context context, double lat, double lon) {
-        SharedPreferences sp = android.preference.PreferenceManager.getDefaultSharedPreferences(context);
-        SharedPreferences.Editor editor = sp.edit();
+        getSnapshot(context);
+
+        SharedPreferences.Editor editor;
+        synchronized (sLock) {
+            editor = getEditor();
+
+            editor.putLong(PREF_COORD_LAT, Double.doubleToRawLongBits(lat));
+            editor.putLong(PREF_COORD_LONG, Double.doubleToRawLongBits(lon));
+        }
+        applyUnlessBatched(editor);
+    }
+
+    /**
+     * Opens a batch on the calling thread, its writes are held until {@link #endBatch()}
+     * Only for a burst of writes on one thread, i.e. BrilhodoSolSyncTask#performSync, which
+     *      must end it in a finally block: writes of a batch never ended are lost.
+     *      Writes from other threads (settings) are not held and stay applied in order.
+     *
+     * @throws IllegalStateException If the calling thread already has a batch open
+     */
+    public static void beginBatch() {
+        if (sBatch.get() != null) {
+            throw new IllegalStateException("Preference batch already open on this thread");
+        }
+
+        sBatch.set(new Batch());
+    }
+
+    /**
+     * Ends the batch of the calling thread, its writes are applied in a single apply
+     *
+     * @throws IllegalStateException If the calling thread has no batch open
+     */
+    public static void endBatch() {
+        Batch batch = sBatch.get();
+        if (batch == null) {
+            throw new IllegalStateException("No preference batch open on this thread");
+        }
+
+        sBatch.remove();
+        if (batch.editor != null) {
+            apply(batch.editor);
+        }
+    }
+
+    /**
+     * Registers a listener called when a preference changes, after the snapshot was updated
+     * Unlike listeners registered on SharedPreferences directly, it can rely on the getters
+     *
+     * @param context  Used to get the SharedPreferences
+     * @param listener Listener to call, held strongly until unregistered
+     */
+    public static void registerOnChangeListener(
+            Context context, SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        getSnapshot(context);
+        sListeners.add(listener);
+    }
 
-        editor.putLong(PREF_COORD_LAT, Double.doubleToRawLongBits(lat));
-        editor.putLong(PREF_COORD_LONG, Double.doubleToRawLongBits(lon));
-        editor.apply();
+    /**
+     * Unregisters a listener of {@link #registerOnChangeListener}
+     *
+     * @param listener Listener to remove
+     */
+    public static void unregisterOnChangeListener(
+            SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        sListeners.remove(listener);
+    }
+
+    /**
+     * Rebuilds the snapshot from the SharedPreferences of the given context
+     * Only needed when the preferences may have changed without a change callback,
+     *      i.e. when a test or benchmark sets them up, possibly in a new application
+     *
+     * @param context Used to get the SharedPreferences
+     */
+    public static void reloadSnapshot(Context context) {
+        synchronized (sLock) {
+            if (sPrefs != null) {
+                sPrefs.unregisterOnSharedPreferenceChangeListener(sSnapshotUpdater);
+            }
+            sSnapshot = null;
+        }
+
+        getSnapshot(context);
+    }
+
+    /**
+     * Returns current snapshot of the preferences, building it and registering
+     *      the listener that keeps it current on first use
+     *
+     * @param context Used to get the SharedPreferences the first time
+     * @return The snapshot
+     */
+    private static Snapshot getSnapshot(Context context) {
+        Snapshot snapshot = sSnapshot;
+        if (snapshot != null) return snapshot;
+
+        synchronized (sLock) {
+            if (sSnapshot == null) {
+                Context appContext = context.getApplicationContext();
+
+                sPrefs = PreferenceManager.getDefaultSharedPreferences(appContext);
+                sSnapshotUpdater = (prefs, key) -> {
+                    updateSnapshot(prefs);
+                    for (SharedPreferences.OnSharedPreferenceChangeListener listener
+                            : sListeners) {
+                        listener.onSharedPreferenceChanged(prefs, key);
+                    }
+                };
+                sPrefs.registerOnSharedPreferenceChangeListener(sSnapshotUpdater);
+                sSnapshot = Snapshot.read(new Keys(appContext), sPrefs);
+            }
+
+            return sSnapshot;
+        }
+    }
+
+    private static void updateSnapshot(SharedPreferences prefs) {
+        synchronized (sLock) {
+            Snapshot updated = Snapshot.read(sSnapshot.keys, prefs);
+            // A held write is newer than the stored value until it is applied
+            if (sUnappliedEditors > 0) {
+                updated = updated.withLastNotificationTime(sSnapshot.lastNotificationTimeMillis);
+            }
+            sSnapshot = updated;
+        }
+    }
+
+    /**
+     * Returns editor for a write, the batch editor of the calling thread inside a batch
+     * Must be called holding sLock, after the snapshot was built
+     *
+     * @return The editor, counted in sUnappliedEditors until it is applied
+     */
+    private static SharedPreferences.Editor getEditor() {
+        Batch batch = sBatch.get();
+        if (batch != null && batch.editor != null) return batch.editor;
+
+        SharedPreferences.Editor editor = sPrefs.edit();
+        sUnappliedEditors++;
+        if (batch != null) batch.editor = editor;
+
+        return editor;
+    }
+
+    private static void applyUnlessBatched(SharedPreferences.Editor editor) {
+        if (sBatch.get() == null) {
+            apply(editor);
+        }
+    }
+
+    /*
+     * Applied outside sLock, apply calls the listeners right away when run on the main thread.
+     * The in-memory values are updated before apply returns.
+     */
+    private static void apply(SharedPreferences.Editor editor) {
+        try {
+            editor.apply();
+        } finally {
+            synchronized (sLock) {
+                sUnappliedEditors--;
+            }
+        }
+    }
+
+    /**
+     * Writes held by the batch of one thread
+     */
+    private static final class Batch {
+
+        /* Created on the first write of the batch */
+        SharedPreferences.Editor editor;
+    }
+
+    /**
+     * Preference keys and defaults, resolved once
+     */
+    private static final class Keys {
+
+        final String units;
+        final String unitsMetric;
+        final String location;
+        final String locationDefault;
+        final String enableNotifications;
+        final boolean enableNotificationsDefault;
+        final String lastNotification;
+        final String history;
+        final String historyDefault;
+
+        Keys(Context context) {
+            units = context.getString(R.string.pref_units_key);
+            unitsMetric = context.getString(R.string.pref_units_metric);
+            location = context.getString(R.string.pref_location_key);
+            locationDefault = context.getString(R.string.pref_location_default);
+            enableNotifications = context.getString(R.string.pref_enable_notifications_key);
+            enableNotificationsDefault = context
+                    .getResources()
+                    .getBoolean(R.bool.show_notifications_by_default);
+            lastNotification = context.getString(R.string.pref_last_notification);
+            history = context.getString(R.string.pref_history_key);
+            historyDefault = context.getString(R.string.pref_history_default);
+        }
+    }
+
+    /**
+     * Typed values of the preferences at one point in time, immutable
+     */
+    private static final class Snapshot {
+
+        final Keys keys;
+
+        final boolean isMetric;
+        final boolean notificationsEnabled;
+        final String preferredLocation;
+        final long lastNotificationTimeMillis;
+        final int historyRetentionDays;
+
+        private Snapshot(Keys keys, boolean isMetric, boolean notificationsEnabled,
+                         String preferredLocation, long lastNotificationTimeMillis,
+                         int historyRetentionDays) {
+            this.keys = keys;
+            this.isMetric = isMetric;
+            this.notificationsEnabled = notificationsEnabled;
+            this.preferredLocation = preferredLocation;
+            this.lastNotificationTimeMillis = lastNotificationTimeMillis;
+            this.historyRetentionDays = historyRetentionDays;
+        }
+
+        static Snapshot read(Keys keys, SharedPreferences prefs) {
+            return new Snapshot(
+                    keys,
+                    keys.unitsMetric.equals(prefs.getString(keys.units, keys.unitsMetric)),
+                    prefs.getBoolean(keys.enableNotifications, keys.enableNotificationsDefault),
+                    prefs.getString(keys.location, keys.locationDefault),
+                    prefs.getLong(keys.lastNotification, 0),
+                    Integer.parseInt(prefs.getString(keys.history, keys.historyDefault)));
+        }
+
+        Snapshot withLastNotificationTime(long lastNotificationTimeMillis) {
+            return new Snapshot(keys, isMetric, notificationsEnabled, preferredLocation,
+                    lastNotificationTimeMillis, historyRetentionDays);
+        }
     }
 }
@@ -0,0 +1,154 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.os.Bundle;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+
+/**
+ * Columnar batch of forecast rows held in parallel primitive arrays
+ * Row i is made of the i-th element of every array, so ingesting many days
+ *      does not allocate a ContentValues (and boxed column values) per row
+ * <p>
+ * Passed to WeatherProvider through {@link WeatherContract#METHOD_BULK_INSERT_BATCH}
+ * A batch may mix rows of several locations, rows added without a location id
+ *      belong to the preferred location
+ */
+public final class ForecastBatch {
+
+    /* Location id of rows that belong to the location currently set in preferences */
+    public static final long PREFERRED_LOCATION = 0;
+
+    public final long[] locationIds;
+    public final long[] dates;
+    public final int[] weatherIds;
+    public final double[] minTemps;
+    public final double[] maxTemps;
+    public final double[] humidities;
+    public final double[] pressures;
+    public final double[] windSpeeds;
+    public final double[] degrees;
+
+    private int mSize;
+
+    /**
+     * @param capacity Maximum number of rows the batch can hold
+     */
+    public ForecastBatch(int capacity) {
+        this(new long[capacity], new long[capacity], new int[capacity], new double[capacity], new double[capacity],
+                new double[capacity], new double[capacity], new double[capacity],
+                new double[capacity], 0);
+    }
+
+    private ForecastBatch(long[] locationIds, long[] dates, int[] weatherIds, double[] minTemps,
+                          double[] maxTemps, double[] humidities, double[] pressures,
+                          double[] windSpeeds, double[] degrees, int size) {
+        this.locationIds = locationIds;
+        this.dates = dates;
+        this.weatherIds = weatherIds;
+        this.minTemps = minTemps;
+        this.maxTemps = maxTemps;
+        this.humidities = humidities;
+        this.pressures = pressures;
+        this.windSpeeds = windSpeeds;
+        this.degrees = degrees;
+        mSize = size;
+    }
+
+    /**
+     * Appends a row of the preferred location to the batch
+     *
+     * @see #add(long, long, int, double, double, double, double, double, double)
+     */
+    public void add(long date, int weatherId, double minTemp, double maxTemp, double humidity,
+                    double pressure, double windSpeed, double degree) {
+        add(PREFERRED_LOCATION, date, weatherId, minTemp, maxTemp, humidity, pressure,
+                windSpeed, degree);
+    }
+
+    /**
+     * Appends a row to the batch
+     *
+     * @param locationId _ID of the location, or PREFERRED_LOCATION
+     * @param date       Normalized UTC date in milliseconds
+     * @param weatherId  OWM weather condition id
+     * @param minTemp    Min temperature in °C
+     * @param maxTemp    Max temperature in °C
+     * @param humidity   Humidity in percent
+     * @param pressure   Pressure in hPa
+     * @param windSpeed  Wind speed
+     * @param degree     Meteorological wind direction
+     */
+    public void add(long locationId, long date, int weatherId, double minTemp, double maxTemp, double humidity,
+                    double pressure, double windSpeed, double degree) {
+        if (mSize == dates.length) {
+            throw new IllegalStateException("Batch is full: " + mSize + " rows");
+        }
+
+        locationIds[mSize] = locationId;
+        dates[mSize] = date;
+        weatherIds[mSize] = weatherId;
+        minTemps[mSize] = minTemp;
+        maxTemps[mSize] = maxTemp;
+        humidities[mSize] = humidity;
+        pressures[mSize] = pressure;
+        windSpeeds[mSize] = windSpeed;
+        degrees[mSize] = degree;
+        mSize++;
+    }
+
+    /**
+     * @return Number of rows in the batch
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Wraps the arrays into a Bundle, arrays are not copied for in-process calls
+     *
+     * @return Bundle to pass to ContentResolver#call
+     */
+    public Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        bundle.putInt(WeatherContract.EXTRA_BATCH_SIZE, mSize);
+        bundle.putLongArray(WeatherEntry.COLUMN_LOCATION_ID, locationIds);
+        bundle.putLongArray(WeatherEntry.COLUMN_DATE, dates);
+        bundle.putIntArray(WeatherEntry.COLUMN_WEATHER_ID, weatherIds);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_MIN_TEMP, minTemps);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_MAX_TEMP, maxTemps);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_HUMIDITY, humidities);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_PRESSURE, pressures);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_WIND_SPEED, windSpeeds);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_DEGREES, degrees);
+
+        return bundle;
+    }
+
+    /**
+     * Reads a batch written by {@link #toBundle()}
+     *
+     * @param bundle Bundle received by the provider
+     * @return The batch
+     */
+    public static ForecastBatch fromBundle(Bundle bundle) {
+        ForecastBatch batch = new ForecastBatch(
+                bundle.getLongArray(WeatherEntry.COLUMN_LOCATION_ID),
+                bundle.getLongArray(WeatherEntry.COLUMN_DATE),
+                bundle.getIntArray(WeatherEntry.COLUMN_WEATHER_ID),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_MIN_TEMP),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_MAX_TEMP),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_HUMIDITY),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_PRESSURE),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_WIND_SPEED),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_DEGREES),
+                bundle.getInt(WeatherContract.EXTRA_BATCH_SIZE));
+
+        if (batch.locationIds == null || batch.dates == null || batch.weatherIds == null || batch.minTemps == null
+                || batch.maxTemps == null || batch.humidities == null || batch.pressures == null
+                || batch.windSpeeds == null || batch.degrees == null) {
+            throw new IllegalArgumentException("Forecast batch is missing a column");
+        }
+
+        return batch;
+    }
+}
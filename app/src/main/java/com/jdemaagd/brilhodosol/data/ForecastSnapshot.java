@@ -0,0 +1,160 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.ContentResolver;
+import android.os.Bundle;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+
+import java.util.Arrays;
+
+/**
+ * Immutable forecast of a location from today onwards, packed in primitive arrays
+ * Returned by {@link WeatherContract#METHOD_GET_FORECAST_SNAPSHOT}, it is read with typed
+ *      getters by day index instead of a Cursor, its CursorWindow and column index constants
+ * <p>
+ * Days are in ascending date order, day i is made of the i-th element of every array
+ */
+public final class ForecastSnapshot {
+
+    private final long[] mDates;
+    private final int[] mWeatherIds;
+    private final double[] mMinTemps;
+    private final double[] mMaxTemps;
+    private final double[] mHumidities;
+    private final double[] mPressures;
+    private final double[] mWindSpeeds;
+    private final double[] mDegrees;
+
+    ForecastSnapshot(long[] dates, int[] weatherIds, double[] minTemps, double[] maxTemps,
+                     double[] humidities, double[] pressures, double[] windSpeeds,
+                     double[] degrees) {
+        mDates = dates;
+        mWeatherIds = weatherIds;
+        mMinTemps = minTemps;
+        mMaxTemps = maxTemps;
+        mHumidities = humidities;
+        mPressures = pressures;
+        mWindSpeeds = windSpeeds;
+        mDegrees = degrees;
+    }
+
+    /**
+     * Reads the forecast of the preferred location
+     *
+     * @param contentResolver Used to call WeatherProvider
+     * @return The snapshot, empty if nothing is stored
+     */
+    public static ForecastSnapshot query(ContentResolver contentResolver) {
+        Bundle result = contentResolver.call(
+                WeatherEntry.CONTENT_URI,
+                WeatherContract.METHOD_GET_FORECAST_SNAPSHOT,
+                null,
+                null);
+
+        return fromBundle(result);
+    }
+
+    /**
+     * Wraps the arrays into a Bundle, arrays are not copied for in-process calls
+     *
+     * @return Bundle returned by WeatherProvider#call
+     */
+    Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        bundle.putLongArray(WeatherEntry.COLUMN_DATE, mDates);
+        bundle.putIntArray(WeatherEntry.COLUMN_WEATHER_ID, mWeatherIds);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_MIN_TEMP, mMinTemps);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_MAX_TEMP, mMaxTemps);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_HUMIDITY, mHumidities);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_PRESSURE, mPressures);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_WIND_SPEED, mWindSpeeds);
+        bundle.putDoubleArray(WeatherEntry.COLUMN_DEGREES, mDegrees);
+
+        return bundle;
+    }
+
+    /**
+     * Reads a snapshot written by {@link #toBundle()}
+     *
+     * @param bundle Bundle returned by the provider, may be null
+     * @return The snapshot, empty if the bundle is null or lacks a column
+     */
+    public static ForecastSnapshot fromBundle(Bundle bundle) {
+        if (bundle == null) return empty();
+
+        ForecastSnapshot snapshot = new ForecastSnapshot(
+                bundle.getLongArray(WeatherEntry.COLUMN_DATE),
+                bundle.getIntArray(WeatherEntry.COLUMN_WEATHER_ID),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_MIN_TEMP),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_MAX_TEMP),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_HUMIDITY),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_PRESSURE),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_WIND_SPEED),
+                bundle.getDoubleArray(WeatherEntry.COLUMN_DEGREES));
+
+        if (snapshot.mDates == null || snapshot.mWeatherIds == null
+                || snapshot.mMinTemps == null || snapshot.mMaxTemps == null
+                || snapshot.mHumidities == null || snapshot.mPressures == null
+                || snapshot.mWindSpeeds == null || snapshot.mDegrees == null) {
+            return empty();
+        }
+
+        return snapshot;
+    }
+
+    private static ForecastSnapshot empty() {
+        return new ForecastSnapshot(new long[0], new int[0], new double[0], new double[0],
+                new double[0], new double[0], new double[0], new double[0]);
+    }
+
+    /**
+     * @return Number of days in the snapshot
+     */
+    public int size() {
+        return mDates.length;
+    }
+
+    /**
+     * Returns the index of a day
+     *
+     * @param normalizedUtcDate Normalized UTC date in milliseconds
+     * @return Index of the day, -1 if it is not part of the snapshot
+     */
+    public int indexOfDate(long normalizedUtcDate) {
+        int index = Arrays.binarySearch(mDates, normalizedUtcDate);
+
+        return index < 0 ? -1 : index;
+    }
+
+    public long getDate(int index) {
+        return mDates[index];
+    }
+
+    public int getWeatherId(int index) {
+        return mWeatherIds[index];
+    }
+
+    public double getMinTemp(int index) {
+        return mMinTemps[index];
+    }
+
+    public double getMaxTemp(int index) {
+        return mMaxTemps[index];
+    }
+
+    public double getHumidity(int index) {
+        return mHumidities[index];
+    }
+
+    public double getPressure(int index) {
+        return mPressures[index];
+    }
+
+    public double getWindSpeed(int index) {
+        return mWindSpeeds[index];
+    }
+
+    public double getDegrees(int index) {
+        return mDegrees[index];
+    }
+}
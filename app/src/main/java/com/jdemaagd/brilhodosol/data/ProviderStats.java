@@ -0,0 +1,189 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.format.DateFormat;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms, slow operation log and query plans of WeatherProvider
+ * Printed by WeatherProvider#dump, i.e. adb shell dumpsys activity provider
+ *      com.jdemaagd.brilhodosol/.data.WeatherProvider
+ * <p>
+ * Thread safe, recording an operation only costs a few array updates under a lock
+ */
+final class ProviderStats {
+
+    private static final String LOG_TAG = ProviderStats.class.getSimpleName();
+
+    static final String OP_QUERY = "query";
+    static final String OP_BULK_INSERT = "bulkInsert";
+    static final String OP_DELETE = "delete";
+    static final String OP_REPLACE_FORECAST = "replaceForecast";
+    static final String OP_BULK_INSERT_BATCH = "bulkInsertBatch";
+    static final String OP_COMPACT_ARCHIVE = "compactArchive";
+
+    /* Operations at or above this duration are logged */
+    static final long SLOW_OPERATION_MILLIS = 50;
+
+    private static final int MAX_SLOW_OPERATIONS = 20;
+    private static final int MAX_QUERY_PLANS = 32;
+
+    /*
+     * Upper bounds of the histogram buckets in milliseconds, powers of two,
+     * the last bucket holds everything slower
+     */
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 4, 8, 16, 32, 64, 128, 256};
+
+    private final Map<String, Histogram> mHistograms = new LinkedHashMap<>();
+    private final ArrayDeque<String> mSlowOperations = new ArrayDeque<>(MAX_SLOW_OPERATIONS);
+    private final Map<String, String> mQueryPlans = new LinkedHashMap<>();
+
+    /**
+     * Records a completed operation
+     *
+     * @param operation     One of the OP_ constants
+     * @param uriCode       Name of the URI code the operation matched, null for provider
+     *                      methods that don't address a single URI
+     * @param uri           URI of the operation, logged if it is slow
+     * @param durationNanos Duration of the operation
+     * @param rows          Rows returned, inserted or deleted
+     */
+    synchronized void record(String operation, String uriCode, Object uri, long durationNanos,
+                             int rows) {
+        String key = uriCode != null ? operation + " " + uriCode : operation;
+        Histogram histogram = mHistograms.get(key);
+        if (histogram == null) {
+            histogram = new Histogram();
+            mHistograms.put(key, histogram);
+        }
+        histogram.add(durationNanos, rows);
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        if (durationMillis >= SLOW_OPERATION_MILLIS) {
+            String entry = DateFormat.format("MM-dd HH:mm:ss", System.currentTimeMillis())
+                    + " " + key + " " + uri + " " + durationMillis + " ms, " + rows + " rows";
+            Log.w(LOG_TAG, "Slow operation: " + entry);
+
+            if (mSlowOperations.size() == MAX_SLOW_OPERATIONS) {
+                mSlowOperations.removeFirst();
+            }
+            mSlowOperations.addLast(entry);
+        }
+    }
+
+    /**
+     * Captures the plan of a query the first time its SQL is seen
+     * Meant for debug builds only, it runs an extra statement per new query
+     *
+     * @param db            Database the query runs on
+     * @param sql           SQL of the query
+     * @param selectionArgs Arguments of the query
+     */
+    void explainIfNew(SQLiteDatabase db, String sql, String[] selectionArgs) {
+        synchronized (this) {
+            if (mQueryPlans.containsKey(sql) || mQueryPlans.size() >= MAX_QUERY_PLANS) return;
+        }
+
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+        try {
+            // Columns are id, parent, notused and detail, detail is the last one
+            int detailIndex = cursor.getColumnCount() - 1;
+            while (cursor.moveToNext()) {
+                plan.append("    ").append(cursor.getString(detailIndex)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+
+        synchronized (this) {
+            mQueryPlans.put(sql, plan.toString());
+        }
+    }
+
+    /**
+     * Prints every statistic
+     *
+     * @param writer Writer of the dump
+     */
+    synchronized void dump(PrintWriter writer) {
+        writer.println("Latency (ms buckets " + bucketLabels() + "):");
+        for (Map.Entry<String, Histogram> entry : mHistograms.entrySet()) {
+            writer.print("  ");
+            writer.print(entry.getKey());
+            writer.print(": ");
+            entry.getValue().dump(writer);
+        }
+
+        writer.println("Slow operations (>= " + SLOW_OPERATION_MILLIS + " ms):");
+        for (String slowOperation : mSlowOperations) {
+            writer.println("  " + slowOperation);
+        }
+
+        writer.println("Query plans:");
+        for (Map.Entry<String, String> entry : mQueryPlans.entrySet()) {
+            writer.println("  " + entry.getKey());
+            writer.print(entry.getValue());
+        }
+    }
+
+    private static String bucketLabels() {
+        StringBuilder labels = new StringBuilder();
+        for (long bound : BUCKET_BOUNDS_MILLIS) {
+            labels.append('<').append(bound).append(' ');
+        }
+
+        return labels.append(">=")
+                .append(BUCKET_BOUNDS_MILLIS[BUCKET_BOUNDS_MILLIS.length - 1])
+                .toString();
+    }
+
+    /**
+     * Counts of operations per latency bucket, with totals
+     */
+    private static final class Histogram {
+
+        private final long[] mBuckets = new long[BUCKET_BOUNDS_MILLIS.length + 1];
+        private long mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private long mTotalRows;
+
+        void add(long durationNanos, int rows) {
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length
+                    && durationMillis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+
+            mBuckets[bucket]++;
+            mCount++;
+            mTotalNanos += durationNanos;
+            mMaxNanos = Math.max(mMaxNanos, durationNanos);
+            mTotalRows += rows;
+        }
+
+        void dump(PrintWriter writer) {
+            writer.print("count=" + mCount);
+            writer.print(" avg="
+                    + String.format(Locale.US, "%.2f", mTotalNanos / 1e6 / mCount) + "ms");
+            writer.print(" max=" + String.format(Locale.US, "%.2f", mMaxNanos / 1e6) + "ms");
+            writer.print(" rows=" + mTotalRows);
+            writer.print(" [");
+            for (int i = 0; i < mBuckets.length; i++) {
+                if (i > 0) writer.print(' ');
+                writer.print(mBuckets[i]);
+            }
+            writer.println(']');
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.utils.AppDateUtils;
+
+/**
+ * Inserts forecast rows through a single precompiled INSERT statement
+ * SQL is compiled once per bulk operation and every row only binds typed values,
+ *      unlike SQLiteDatabase#insert which rebuilds the statement for each ContentValues
+ * <p>
+ * Not thread safe, create one per bulk operation inside the caller's transaction
+ */
+final class WeatherBulkInserter {
+
+    private static final String SQL_INSERT_WEATHER =
+            "INSERT OR REPLACE INTO " + WeatherEntry.TABLE_NAME + " ("
+                    + WeatherEntry.COLUMN_LOCATION_ID + ", "
+                    + WeatherEntry.COLUMN_DAY + ", "
+                    + WeatherEntry.COLUMN_WEATHER_ID + ", "
+                    + WeatherEntry.COLUMN_MIN_TEMP + ", "
+                    + WeatherEntry.COLUMN_MAX_TEMP + ", "
+                    + WeatherEntry.COLUMN_HUMIDITY + ", "
+                    + WeatherEntry.COLUMN_PRESSURE + ", "
+                    + WeatherEntry.COLUMN_WIND_SPEED + ", "
+                    + WeatherEntry.COLUMN_DEGREES
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // SQLiteStatement bind indices are 1-based
+    private static final int BIND_LOCATION_ID = 1;
+    private static final int BIND_DAY = 2;
+    private static final int BIND_WEATHER_ID = 3;
+    private static final int BIND_MIN_TEMP = 4;
+    private static final int BIND_MAX_TEMP = 5;
+    private static final int BIND_HUMIDITY = 6;
+    private static final int BIND_PRESSURE = 7;
+    private static final int BIND_WIND_SPEED = 8;
+    private static final int BIND_DEGREES = 9;
+
+    private final SQLiteStatement mInsertStatement;
+
+    WeatherBulkInserter(SQLiteDatabase db) {
+        mInsertStatement = db.compileStatement(SQL_INSERT_WEATHER);
+    }
+
+    /**
+     * Inserts (or replaces) a row given as ContentValues
+     *
+     * @param value      Column values
+     * @param locationId _ID of the location the row belongs to
+     * @return true if the row was written, false if a NOT NULL column is missing
+     */
+    boolean insert(ContentValues value, long locationId) {
+        long date = value.getAsLong(WeatherEntry.COLUMN_DATE);
+        Integer weatherId = value.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID);
+        Double minTemp = value.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP);
+        Double maxTemp = value.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP);
+        Double humidity = value.getAsDouble(WeatherEntry.COLUMN_HUMIDITY);
+        Double pressure = value.getAsDouble(WeatherEntry.COLUMN_PRESSURE);
+        Double windSpeed = value.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED);
+        Double degrees = value.getAsDouble(WeatherEntry.COLUMN_DEGREES);
+
+        // Same outcome as SQLiteDatabase#insert, which fails the NOT NULL constraint
+        if (weatherId == null || minTemp == null || maxTemp == null || humidity == null
+                || pressure == null || windSpeed == null || degrees == null) {
+            return false;
+        }
+
+        return insert(locationId, date, weatherId, minTemp, maxTemp, humidity, pressure, windSpeed, degrees);
+    }
+
+    /**
+     * Inserts (or replaces) every row of a columnar batch without allocating per row
+     *
+     * @param batch               Rows to insert, possibly of several locations
+     * @param preferredLocationId _ID of the location of rows added as PREFERRED_LOCATION
+     * @param changes             Receives the days written
+     * @return Number of rows written
+     */
+    int insert(ForecastBatch batch, long preferredLocationId, WeatherChangeSet changes) {
+        int rowsInserted = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            long locationId = batch.locationIds[i] == ForecastBatch.PREFERRED_LOCATION
+                    ? preferredLocationId
+                    : batch.locationIds[i];
+            if (insert(locationId, batch.dates[i], batch.weatherIds[i], batch.minTemps[i],
+                    batch.maxTemps[i], batch.humidities[i], batch.pressures[i],
+                    batch.windSpeeds[i], batch.degrees[i])) {
+                changes.addDay(locationId,
+                        AppDateUtils.getDayNumberForNormalizedDate(batch.dates[i]));
+                rowsInserted++;
+            }
+        }
+
+        return rowsInserted;
+    }
+
+    private boolean insert(long locationId, long date, int weatherId, double minTemp,
+                           double maxTemp, double humidity, double pressure, double windSpeed, double degrees) {
+        if (!AppDateUtils.isDateNormalized(date)) {
+            throw new IllegalArgumentException("Date must be normalized to insert");
+        }
+
+        mInsertStatement.bindLong(BIND_LOCATION_ID, locationId);
+        mInsertStatement.bindLong(BIND_DAY, AppDateUtils.getDayNumberForNormalizedDate(date));
+        mInsertStatement.bindLong(BIND_WEATHER_ID, weatherId);
+        mInsertStatement.bindDouble(BIND_MIN_TEMP, minTemp);
+        mInsertStatement.bindDouble(BIND_MAX_TEMP, maxTemp);
+        mInsertStatement.bindDouble(BIND_HUMIDITY, humidity);
+        mInsertStatement.bindDouble(BIND_PRESSURE, pressure);
+        mInsertStatement.bindDouble(BIND_WIND_SPEED, windSpeed);
+        mInsertStatement.bindDouble(BIND_DEGREES, degrees);
+
+        return mInsertStatement.executeInsert() != -1;
+    }
+
+    /**
+     * Releases the compiled statement
+     */
+    void close() {
+        mInsertStatement.close();
+    }
+}
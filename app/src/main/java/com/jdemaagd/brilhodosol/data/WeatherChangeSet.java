@@ -0,0 +1,98 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.utils.AppDateUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Days whose weather a provider write changed, collected until the write is committed
+ * <p>
+ * Each changed day is notified on its own date URI, so a detail screen only reloads when its
+ *      day changes, and list observers get a single notification on
+ *      {@link WeatherEntry#SUMMARY_URI} however many days changed.
+ *      Notifying WeatherEntry.CONTENT_URI instead would reach every descendant observer.
+ */
+final class WeatherChangeSet {
+
+    /* (location_id, day) pairs packed in a long, location in the high 32 bits */
+    private final Set<Long> mChangedDays = new HashSet<>();
+
+    /* Other URIs to notify as is, e.g. locations */
+    private final Set<Uri> mChangedUris = new HashSet<>();
+
+    private boolean mSummaryChanged;
+
+    /**
+     * Records a changed day, which also changes the summary
+     *
+     * @param locationId _ID of the location
+     * @param day        Day number
+     */
+    void addDay(long locationId, long day) {
+        mChangedDays.add((locationId << 32) | (day & 0xffffffffL));
+        mSummaryChanged = true;
+    }
+
+    /**
+     * Records a change that is only visible to list observers, e.g. in the archive
+     */
+    void addSummary() {
+        mSummaryChanged = true;
+    }
+
+    /**
+     * Records a change notified on a URI as is
+     *
+     * @param uri The URI that changed
+     */
+    void addUri(Uri uri) {
+        mChangedUris.add(uri);
+    }
+
+    /**
+     * Adds the changes of another set, used to merge the operations of a batch
+     *
+     * @param other Changes to add
+     */
+    void addAll(WeatherChangeSet other) {
+        mChangedDays.addAll(other.mChangedDays);
+        mChangedUris.addAll(other.mChangedUris);
+        mSummaryChanged |= other.mSummaryChanged;
+    }
+
+    boolean isEmpty() {
+        return !mSummaryChanged && mChangedUris.isEmpty();
+    }
+
+    /**
+     * Sends the notifications, once the write has been committed
+     *
+     * @param contentResolver     Used to notify observers
+     * @param preferredLocationId _ID of the location served by date URIs without location
+     */
+    void notifyObservers(ContentResolver contentResolver, long preferredLocationId) {
+        for (long changedDay : mChangedDays) {
+            long locationId = changedDay >>> 32;
+            long date = (changedDay & 0xffffffffL) * AppDateUtils.DAY_IN_MILLIS;
+
+            contentResolver.notifyChange(
+                    WeatherEntry.buildWeatherUriWithLocationAndDate(locationId, date), null);
+            if (locationId == preferredLocationId) {
+                contentResolver.notifyChange(WeatherEntry.buildWeatherUriWithDate(date), null);
+            }
+        }
+
+        if (mSummaryChanged) {
+            contentResolver.notifyChange(WeatherEntry.SUMMARY_URI, null);
+        }
+
+        for (Uri changedUri : mChangedUris) {
+            contentResolver.notifyChange(changedUri, null);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.jdemaagd.brilhodosol.data;
 
+import android.content.ContentUris;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
+import com.jdemaagd.brilhodosol.utils.AppDateUtils;
+
 /**
  * Defines table and column names for the weather database. This class is not necessary, but keeps
  * the code organized.
@@ -20,6 +23,99 @@ public class WeatherContract {
     public static final Uri BASE_CONTENT_URI = Uri.parse("content://" + CONTENT_AUTHORITY);
 
     public static final String PATH_WEATHER = "weather";
+    public static final String PATH_LOCATION = "location";
+    public static final String PATH_RANGE = "range";
+    public static final String PATH_SUMMARY = "summary";
+
+    /*
+     * Optional query parameter limiting the number of returned rows, supported by the list URIs:
+     * weather/, weather/location/# and weather/range/#/# (applied after the sort order)
+     */
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+    /*
+     * Provider method, used through ContentResolver#call, that upserts the forecast rows passed in
+     * EXTRA_FORECAST_VALUES and deletes the rows whose dates are passed in EXTRA_STALE_DATES.
+     * Everything runs in a single transaction and observers are notified once, so a CursorLoader
+     * never sees a half written forecast. Rows belong to the location in EXTRA_LOCATION_ID, or to
+     * the preferred location if absent. The returned Bundle holds EXTRA_ROWS_CHANGED.
+     */
+    public static final String METHOD_REPLACE_FORECAST = "replace_forecast";
+
+    public static final String EXTRA_FORECAST_VALUES = "forecast_values";
+    public static final String EXTRA_STALE_DATES = "stale_dates";
+    public static final String EXTRA_ROWS_CHANGED = "rows_changed";
+    public static final String EXTRA_LOCATION_ID = "location_id";
+
+    /*
+     * Provider method that inserts a ForecastBatch (see ForecastBatch#toBundle) through a
+     * precompiled statement in a single transaction. A batch may hold rows of many locations, so
+     * a multi-location ingest is one transaction. The returned Bundle holds EXTRA_ROWS_CHANGED.
+     */
+    public static final String METHOD_BULK_INSERT_BATCH = "bulk_insert_batch";
+
+    public static final String EXTRA_BATCH_SIZE = "batch_size";
+
+    /*
+     * Provider method that deletes archived days older than EXTRA_RETENTION_DAYS days before
+     * today. The returned Bundle holds the number of deleted rows in EXTRA_ROWS_CHANGED.
+     * EXTRA_RETENTION_DAYS is required, calls without it throw IllegalArgumentException.
+     */
+    public static final String METHOD_COMPACT_ARCHIVE = "compact_archive";
+
+    public static final String EXTRA_RETENTION_DAYS = "retention_days";
+
+    /*
+     * Provider method returning the hit and miss counts of the provider's cache of single day
+     * rows in EXTRA_CACHE_HITS and EXTRA_CACHE_MISSES.
+     */
+    public static final String METHOD_GET_ROW_CACHE_STATS = "get_row_cache_stats";
+
+    public static final String EXTRA_CACHE_HITS = "cache_hits";
+    public static final String EXTRA_CACHE_MISSES = "cache_misses";
+
+    /*
+     * Provider method returning the forecast from today onwards as a packed ForecastSnapshot
+     * Bundle (see ForecastSnapshot#fromBundle). Rows belong to the location in
+     * EXTRA_LOCATION_ID, or to the preferred location if absent. Meant for whole forecasts,
+     * a single day is cheaper through its weather/# URI, which the row cache serves.
+     */
+    public static final String METHOD_GET_FORECAST_SNAPSHOT = "get_forecast_snapshot";
+
+    /* Inner class that defines the table contents of the location table */
+    public static final class LocationEntry implements BaseColumns {
+
+        /* The base CONTENT_URI used to query and insert locations */
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_LOCATION)
+                .build();
+
+        /* Used internally as the name of our location table. */
+        public static final String TABLE_NAME = "location";
+
+        /*
+         * The location setting is the string sent to OpenWeatherMap as the location query, i.e.
+         * the value of the location preference. It uniquely identifies a location.
+         */
+        public static final String COLUMN_LOCATION_SETTING = "location_setting";
+
+        /* Human readable city name, may be null until a forecast has been downloaded */
+        public static final String COLUMN_CITY_NAME = "city_name";
+
+        /* Coordinates of the city as returned by OpenWeatherMap, may be null */
+        public static final String COLUMN_COORD_LAT = "coord_lat";
+        public static final String COLUMN_COORD_LONG = "coord_long";
+
+        /**
+         * Builds a URI for a single location
+         *
+         * @param locationId _ID of the location
+         * @return Uri of the location
+         */
+        public static Uri buildLocationUri(long locationId) {
+            return ContentUris.withAppendedId(CONTENT_URI, locationId);
+        }
+    }
 
     /* Inner class that defines the table contents of the weather table */
     public static final class WeatherEntry implements BaseColumns {
@@ -29,9 +125,26 @@ public class WeatherContract {
                 .appendPath(PATH_WEATHER)
                 .build();
 
+        /*
+         * Notification URI of cursors holding many days (forecast lists, ranges). Observers are
+         * notified once per write, however many days changed. It is a sibling of the date URIs,
+         * so a change of one day does not reach list observers through it and vice versa.
+         * Notifying CONTENT_URI itself reaches every observer, lists and days alike.
+         */
+        public static final Uri SUMMARY_URI = CONTENT_URI.buildUpon()
+                .appendPath(PATH_SUMMARY)
+                .build();
+
         /* Used internally as the name of our weather table. */
         public static final String TABLE_NAME = "weather";
 
+        /*
+         * Past days are moved out of the weather table into this table, which has the same
+         * columns. It keeps the weather table small for the forecast list while the history stays
+         * queryable through range URIs.
+         */
+        public static final String ARCHIVE_TABLE_NAME = "weather_archive";
+
         /*
          * The date column will store the UTC date that correlates to the local date for which
          * each particular weather row represents. For example, if you live in the Eastern
@@ -50,6 +163,22 @@ public class WeatherContract {
          */
         public static final String COLUMN_DATE = "date";
 
+        /*
+         * The day column is the primary key of the weather table: the number of days since the
+         * epoch of the normalized COLUMN_DATE (COLUMN_DATE / DAY_IN_MILLIS). The table only stores
+         * this day number; WeatherProvider derives COLUMN_DATE and _ID from it when querying, so
+         * cursor consumers keep working with milliseconds. Selections that should use the primary
+         * key index must filter on this column rather than on COLUMN_DATE.
+         */
+        public static final String COLUMN_DAY = "day";
+
+        /*
+         * _ID of the location (see LocationEntry) the forecast row belongs to. Together with
+         * COLUMN_DAY it forms the primary key of the weather table. Rows written or read through
+         * CONTENT_URI and date URIs belong to the location currently set in preferences.
+         */
+        public static final String COLUMN_LOCATION_ID = "location_id";
+
         /* Weather ID as returned by API, used to identify the icon to be used */
         public static final String COLUMN_WEATHER_ID = "weather_id";
 
@@ -88,18 +217,74 @@ public class WeatherContract {
                     .build();
         }
 
+        /**
+         * Builds a URI for the whole forecast of one location
+         * i.e. content://com.jdemaagd.brilhodosol/weather/location/3
+         *
+         * @param locationId _ID of the location
+         * @return Uri to query the forecast of the location
+         */
+        public static Uri buildWeatherUriWithLocation(long locationId) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_LOCATION)
+                    .appendPath(Long.toString(locationId))
+                    .build();
+        }
+
+        /**
+         * Builds a URI for the forecast of one location on one day
+         * i.e. content://com.jdemaagd.brilhodosol/weather/location/3/1472169600000
+         *
+         * @param locationId _ID of the location
+         * @param date       Normalized date in milliseconds
+         * @return Uri to query a single weather entry of the location
+         */
+        public static Uri buildWeatherUriWithLocationAndDate(long locationId, long date) {
+            return buildWeatherUriWithLocation(locationId).buildUpon()
+                    .appendPath(Long.toString(date))
+                    .build();
+        }
+
+        /**
+         * Builds a URI for the weather of the preferred location between two days, included,
+         * served from the archive for past days and from the forecast otherwise
+         * i.e. content://com.jdemaagd.brilhodosol/weather/range/1471564800000/1472169600000
+         *
+         * @param startDate Normalized date in milliseconds of the first day
+         * @param endDate   Normalized date in milliseconds of the last day
+         * @return Uri to query the weather of a range of days
+         */
+        public static Uri buildWeatherUriWithRange(long startDate, long endDate) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_RANGE)
+                    .appendPath(Long.toString(startDate))
+                    .appendPath(Long.toString(endDate))
+                    .build();
+        }
+
         /**
          * Returns just the selection part of the weather query from a normalized today value.
-         * This is used to get a weather forecast from today's date. To make this easy to use
-         * in compound selection, we embed today's date as an argument in the query.
+         * This is used to get a weather forecast from today's date. The bound is on the stored
+         * day number, so the selection is a range of the primary key rather than a table scan.
+         * Today is passed as a selection argument, see {@link #getSqlSelectArgsForTodayOnwards()},
+         * so the statement is the same every day and stays in SQLite's statement cache.
          *
          * @return The selection part of the weather query for today onwards
          */
         public static String getSqlSelectForTodayOnwards() {
-            // long normalizedUtcNow = DateUtils.normalizeDate(System.currentTimeMillis());
-            // return WeatherContract.WeatherEntry.COLUMN_DATE + " >= " + normalizedUtcNow;
+            return COLUMN_DAY + " >= ?";
+        }
+
+        /**
+         * Returns the selection arguments of {@link #getSqlSelectForTodayOnwards()}
+         *
+         * @return Day number of today, as a selection argument
+         */
+        public static String[] getSqlSelectArgsForTodayOnwards() {
+            long today = AppDateUtils.getDayNumberForNormalizedDate(
+                    AppDateUtils.getNormalizedUtcDateForToday());
 
-            return null;
+            return new String[]{Long.toString(today)};
         }
     }
 }
\ No newline at end of file
@@ -1,23 +1,92 @@
 package com.jdemaagd.brilhodosol.data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.LocationEntry;
 import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.utils.HttpValidatorCache;
+
+import java.util.List;
 
 public class WeatherDbHelper extends SQLiteOpenHelper {
 
+    private static final String LOG_TAG = WeatherDbHelper.class.getSimpleName();
+
     public static final String DATABASE_NAME = "weather.db";
 
     /*
      * If you change the database schema, you must increment the database version or the onUpgrade
-     * method will not be called.
+     * method will not be called. Add a matching migration to WeatherMigrations as well.
+     */
+    private static final int DATABASE_VERSION = 6;
+
+    /*
+     * Pages written to the WAL before SQLite checkpoints them into the database file. Smaller than
+     * the default of 1000 so the WAL of our few-KB syncs stays small and reads stay fast.
      */
-    private static final int DATABASE_VERSION = 3;
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 200;
 
+    private final Context mContext;
+
+    /* Only the app's own database backs the validators of HttpValidatorCache */
+    private final boolean mOwnsHttpValidators;
+
+    /**
+     * Opens the database in write-ahead logging mode
+     * With WAL, a sync writing its transaction never blocks the list and detail queries:
+     *      readers see the last committed snapshot and run on their own pooled connections
+     *
+     * @param context Used to open the database
+     */
     public WeatherDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Opens a database of the weather schema under another name, so tests and benchmarks
+     *      on a device leave the app's forecast alone
+     *
+     * @param context      Used to open the database
+     * @param databaseName File name of the database
+     */
+    @VisibleForTesting
+    WeatherDbHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        mContext = context;
+        mOwnsHttpValidators = DATABASE_NAME.equals(databaseName);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Called when the database connection is being configured, before onCreate / onUpgrade
+     * In WAL mode synchronous=NORMAL is still durable against app crashes and only syncs at
+     *      checkpoints, the most a power loss can cost is the last forecast, which is re-downloaded
+     *
+     * @param sqLiteDatabase The database
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase sqLiteDatabase) {
+        super.onConfigure(sqLiteDatabase);
+
+        // Deleting a location deletes its forecast rows
+        sqLiteDatabase.setForeignKeyConstraintsEnabled(true);
+
+        sqLiteDatabase.execSQL("PRAGMA synchronous = NORMAL");
+
+        // PRAGMA wal_autocheckpoint returns a row, so it can't go through execSQL
+        Cursor cursor = sqLiteDatabase.rawQuery(
+                "PRAGMA wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
     }
 
     /**
@@ -28,6 +97,21 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
     @Override
     public void onCreate(SQLiteDatabase sqLiteDatabase) {
 
+        /*
+         * Every location the user tracks gets a row, _ID is an alias of the rowid so forecast rows
+         * reference it with a compact integer rather than repeating the location setting.
+         */
+        final String SQL_CREATE_LOCATION_TABLE =
+
+                "CREATE TABLE " + LocationEntry.TABLE_NAME + " (" +
+
+                        LocationEntry._ID                     + " INTEGER PRIMARY KEY, "   +
+                        LocationEntry.COLUMN_LOCATION_SETTING + " TEXT UNIQUE NOT NULL, "  +
+                        LocationEntry.COLUMN_CITY_NAME        + " TEXT, "                  +
+                        LocationEntry.COLUMN_COORD_LAT        + " REAL, "                  +
+                        LocationEntry.COLUMN_COORD_LONG       + " REAL"                    +
+                        ");";
+
         /*
          * This String will contain a simple SQL statement that will create a table that will
          * cache our weather data.
@@ -36,38 +120,79 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
 
                 "CREATE TABLE " + WeatherEntry.TABLE_NAME + " (" +
 
+                        WeatherEntry.COLUMN_LOCATION_ID + " INTEGER NOT NULL REFERENCES "       +
+                        LocationEntry.TABLE_NAME + " (" + LocationEntry._ID + ") "              +
+                        "ON DELETE CASCADE, "                                                   +
+                        WeatherEntry.COLUMN_DAY        + " INTEGER NOT NULL, "                  +
+                        WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL, "                  +
+                        WeatherEntry.COLUMN_MIN_TEMP   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_MAX_TEMP   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_HUMIDITY   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_PRESSURE   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_DEGREES    + " REAL NOT NULL, "                     +
+
                         /*
-                         * WeatherEntry did not explicitly declare a column called "_ID". However,
-                         * WeatherEntry implements the interface, "BaseColumns", which does have a field
-                         * named "_ID". We use that here to designate our table's primary key.
-                         */
-                        WeatherEntry._ID               + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                        WeatherEntry.COLUMN_DATE       + " INTEGER NOT NULL, "                 +
-                        WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL, "                 +
-                        WeatherEntry.COLUMN_MIN_TEMP   + " REAL NOT NULL, "                    +
-                        WeatherEntry.COLUMN_MAX_TEMP   + " REAL NOT NULL, "                    +
-                        WeatherEntry.COLUMN_HUMIDITY   + " REAL NOT NULL, "                    +
-                        WeatherEntry.COLUMN_PRESSURE   + " REAL NOT NULL, "                    +
-                        WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, "                    +
-                        WeatherEntry.COLUMN_DEGREES    + " REAL NOT NULL, "                    +
-                        /*
-                         * To ensure this table can only contain one weather entry per date, we declare
-                         * the date column to be unique. We also specify "ON CONFLICT REPLACE". This tells
-                         * SQLite that if we have a weather entry for a certain date and we attempt to
-                         * insert another weather entry with that date, we replace the old weather entry.
+                         * Rows are keyed by (location, day number). Declaring the pair as the
+                         * PRIMARY KEY of a WITHOUT ROWID table stores each row inside the primary
+                         * key B-tree, which is the composite index: all days of a location are
+                         * contiguous and ordered by day, so a per-location scan or day range is a
+                         * single B-tree range read and a day lookup a single probe. There is no
+                         * separate rowid tree and no extra index to maintain. _ID is served by
+                         * WeatherProvider as an alias of the day number.
                          */
-                        " UNIQUE (" + WeatherEntry.COLUMN_DATE + ") ON CONFLICT REPLACE);";
+                        " PRIMARY KEY (" + WeatherEntry.COLUMN_LOCATION_ID + ", "               +
+                        WeatherEntry.COLUMN_DAY + ")"                                           +
+                        ") WITHOUT ROWID;";
+
+        /*
+         * Same columns and key as the weather table, a history range of a location is a single
+         * primary key range read as well
+         */
+        final String SQL_CREATE_WEATHER_ARCHIVE_TABLE =
+
+                "CREATE TABLE " + WeatherEntry.ARCHIVE_TABLE_NAME + " (" +
+
+                        WeatherEntry.COLUMN_LOCATION_ID + " INTEGER NOT NULL REFERENCES "       +
+                        LocationEntry.TABLE_NAME + " (" + LocationEntry._ID + ") "              +
+                        "ON DELETE CASCADE, "                                                   +
+                        WeatherEntry.COLUMN_DAY        + " INTEGER NOT NULL, "                  +
+                        WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL, "                  +
+                        WeatherEntry.COLUMN_MIN_TEMP   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_MAX_TEMP   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_HUMIDITY   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_PRESSURE   + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, "                     +
+                        WeatherEntry.COLUMN_DEGREES    + " REAL NOT NULL, "                     +
+                        " PRIMARY KEY (" + WeatherEntry.COLUMN_LOCATION_ID + ", "               +
+                        WeatherEntry.COLUMN_DAY + ")"                                           +
+                        ") WITHOUT ROWID;";
 
+        sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_ARCHIVE_TABLE);
+
+        /*
+         * A new (or recreated) table holds no forecast, so the validators of the last sync must
+         * not be used or the server would answer 304 and leave the table empty. A database
+         * opened under another name (tests, benchmarks) leaves the app's validators alone.
+         */
+        if (mOwnsHttpValidators) {
+            HttpValidatorCache.clear(mContext);
+        }
     }
 
     /**
-     * This database is only a cache for online data, so its upgrade policy is simply to discard
-     * the data and call through to onCreate to recreate the table. Note that this only fires if
-     * you change the version number for your database (in our case, DATABASE_VERSION). It does NOT
-     * depend on the version number for your application found in your app/build.gradle file. If
-     * you want to update the schema without wiping data, commenting out the current body of this
-     * method should be your top priority before modifying this method.
+     * Upgrades the schema in place with the data preserving migrations of
+     * {@link WeatherMigrations}, so cached forecasts survive app updates and are shown right away
+     * instead of after the next network sync. SQLiteOpenHelper runs this method inside a
+     * transaction: either every migration step is applied or the database is left untouched.
+     * Note that this only fires if you change the version number for your database (in our case,
+     * DATABASE_VERSION). It does NOT depend on the version number for your application found in
+     * your app/build.gradle file.
+     * <p>
+     * If no chain of migrations leads from the old version to the new one, the database is only
+     * a cache for online data, so the table is simply dropped and recreated.
      *
      * @param sqLiteDatabase Database that is being upgraded
      * @param oldVersion     The old database version
@@ -75,7 +200,22 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
-        onCreate(sqLiteDatabase);
+        List<WeatherMigration> migrations = WeatherMigrations.findPath(oldVersion, newVersion);
+
+        if (migrations == null) {
+            Log.w(LOG_TAG, "No migration from " + oldVersion + " to " + newVersion
+                    + ", recreating database");
+            sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
+            sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.ARCHIVE_TABLE_NAME);
+            sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
+            onCreate(sqLiteDatabase);
+            return;
+        }
+
+        for (WeatherMigration migration : migrations) {
+            Log.d(LOG_TAG, "Migrating database from " + migration.startVersion
+                    + " to " + migration.endVersion);
+            migration.migrate(mContext, sqLiteDatabase);
+        }
     }
-}
\ No newline at end of file
+}
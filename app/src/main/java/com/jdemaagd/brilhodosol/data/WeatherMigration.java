@@ -0,0 +1,32 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Single step upgrade of the weather database schema that keeps stored data
+ * <p>
+ * A migration must only use SQL frozen at the time it was written, never the current
+ * create statements of WeatherDbHelper, so that it keeps producing its own end schema
+ * however the schema evolves afterwards
+ */
+abstract class WeatherMigration {
+
+    final int startVersion;
+    final int endVersion;
+
+    WeatherMigration(int startVersion, int endVersion) {
+        this.startVersion = startVersion;
+        this.endVersion = endVersion;
+    }
+
+    /**
+     * Rewrites the schema and data from startVersion to endVersion
+     * Runs inside the upgrade transaction opened by SQLiteOpenHelper,
+     *      so a failing migration leaves the database untouched
+     *
+     * @param context Used to read preferences the migrated data depends on
+     * @param db      Database at startVersion
+     */
+    abstract void migrate(Context context, SQLiteDatabase db);
+}
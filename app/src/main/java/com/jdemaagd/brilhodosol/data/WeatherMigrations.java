@@ -0,0 +1,136 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered registry of the data preserving schema migrations of the weather database
+ * To change the schema, bump WeatherDbHelper.DATABASE_VERSION and append a migration here
+ */
+final class WeatherMigrations {
+
+    /*
+     * v3 -> v4: the AUTOINCREMENT _id + UNIQUE(date) table becomes a WITHOUT ROWID table keyed
+     * by day number. Rows are copied with their date converted to days since the epoch.
+     */
+    static final WeatherMigration MIGRATION_3_4 = new WeatherMigration(3, 4) {
+        @Override
+        void migrate(Context context, SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE weather_v4 ("
+                    + "day INTEGER PRIMARY KEY NOT NULL, "
+                    + "weather_id INTEGER NOT NULL, "
+                    + "min REAL NOT NULL, "
+                    + "max REAL NOT NULL, "
+                    + "humidity REAL NOT NULL, "
+                    + "pressure REAL NOT NULL, "
+                    + "wind REAL NOT NULL, "
+                    + "degrees REAL NOT NULL"
+                    + ") WITHOUT ROWID");
+            db.execSQL("INSERT OR REPLACE INTO weather_v4 "
+                    + "(day, weather_id, min, max, humidity, pressure, wind, degrees) "
+                    + "SELECT date / 86400000, weather_id, min, max, humidity, pressure, wind, degrees "
+                    + "FROM weather");
+            db.execSQL("DROP TABLE weather");
+            db.execSQL("ALTER TABLE weather_v4 RENAME TO weather");
+        }
+    };
+
+    /*
+     * v4 -> v5: forecasts are stored per location. A location table is added and the weather
+     * table is rekeyed by (location_id, day). Existing rows were downloaded for the location set
+     * in preferences, so they are assigned to a location row created for that setting.
+     */
+    static final WeatherMigration MIGRATION_4_5 = new WeatherMigration(4, 5) {
+        @Override
+        void migrate(Context context, SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE location ("
+                    + "_id INTEGER PRIMARY KEY, "
+                    + "location_setting TEXT UNIQUE NOT NULL, "
+                    + "city_name TEXT, "
+                    + "coord_lat REAL, "
+                    + "coord_long REAL"
+                    + ")");
+            db.execSQL("INSERT INTO location (_id, location_setting) VALUES (1, ?)",
+                    new Object[]{AppPreferences.getPreferredWeatherLocation(context)});
+            db.execSQL("CREATE TABLE weather_v5 ("
+                    + "location_id INTEGER NOT NULL REFERENCES location (_id) ON DELETE CASCADE, "
+                    + "day INTEGER NOT NULL, "
+                    + "weather_id INTEGER NOT NULL, "
+                    + "min REAL NOT NULL, "
+                    + "max REAL NOT NULL, "
+                    + "humidity REAL NOT NULL, "
+                    + "pressure REAL NOT NULL, "
+                    + "wind REAL NOT NULL, "
+                    + "degrees REAL NOT NULL, "
+                    + "PRIMARY KEY (location_id, day)"
+                    + ") WITHOUT ROWID");
+            db.execSQL("INSERT INTO weather_v5 "
+                    + "(location_id, day, weather_id, min, max, humidity, pressure, wind, degrees) "
+                    + "SELECT 1, day, weather_id, min, max, humidity, pressure, wind, degrees "
+                    + "FROM weather");
+            db.execSQL("DROP TABLE weather");
+            db.execSQL("ALTER TABLE weather_v5 RENAME TO weather");
+        }
+    };
+
+    /*
+     * v5 -> v6: adds the archive table past days are moved to. Nothing was archived before,
+     * so the table starts empty.
+     */
+    static final WeatherMigration MIGRATION_5_6 = new WeatherMigration(5, 6) {
+        @Override
+        void migrate(Context context, SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE weather_archive ("
+                    + "location_id INTEGER NOT NULL REFERENCES location (_id) ON DELETE CASCADE, "
+                    + "day INTEGER NOT NULL, "
+                    + "weather_id INTEGER NOT NULL, "
+                    + "min REAL NOT NULL, "
+                    + "max REAL NOT NULL, "
+                    + "humidity REAL NOT NULL, "
+                    + "pressure REAL NOT NULL, "
+                    + "wind REAL NOT NULL, "
+                    + "degrees REAL NOT NULL, "
+                    + "PRIMARY KEY (location_id, day)"
+                    + ") WITHOUT ROWID");
+        }
+    };
+
+    private static final WeatherMigration[] ALL = {
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6
+    };
+
+    /**
+     * Returns the chain of migrations leading from one version to another
+     *
+     * @param oldVersion Version of the database on disk
+     * @param newVersion Version the app expects
+     * @return Migrations to run in order, null if there is no complete path
+     */
+    static List<WeatherMigration> findPath(int oldVersion, int newVersion) {
+        List<WeatherMigration> path = new ArrayList<>();
+        int version = oldVersion;
+
+        while (version < newVersion) {
+            WeatherMigration next = null;
+            for (WeatherMigration migration : ALL) {
+                if (migration.startVersion == version
+                        && migration.endVersion <= newVersion
+                        && (next == null || migration.endVersion > next.endVersion)) {
+                    next = migration;
+                }
+            }
+
+            if (next == null) return null;
+
+            path.add(next);
+            version = next.endVersion;
+        }
+
+        return path;
+    }
+}
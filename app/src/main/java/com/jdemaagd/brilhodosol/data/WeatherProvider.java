@@ -2,20 +2,51 @@ package com.jdemaagd.brilhodosol.data;
 
 import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 
+import com.jdemaagd.brilhodosol.BuildConfig;
+import com.jdemaagd.brilhodosol.data.WeatherContract.LocationEntry;
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
 import com.jdemaagd.brilhodosol.utils.AppDateUtils;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class WeatherProvider extends ContentProvider {
 
     public static final int CODE_WEATHER = 100;
     public static final int CODE_WEATHER_WITH_DATE = 101;
+    public static final int CODE_WEATHER_WITH_LOCATION = 102;
+    public static final int CODE_WEATHER_WITH_LOCATION_AND_DATE = 103;
+    public static final int CODE_WEATHER_RANGE = 104;
+
+    public static final int CODE_LOCATION = 200;
+
+    /* Location _ID of a preferred location that is not stored yet, matches no weather row */
+    private static final long NO_LOCATION_ID = -1;
+
+    /* About two forecast windows of 14 days, a few KB */
+    private static final int ROW_CACHE_SIZE = 32;
 
     /*
      * The URI Matcher used by this content provider. The leading "s" in this variable name
@@ -24,8 +55,71 @@ public class WeatherProvider extends ContentProvider {
      */
     private static final UriMatcher sUriMatcher = buildUriMatcher();
 
+    /*
+     * The weather table only stores the day number. Queries see COLUMN_DATE (normalized
+     * milliseconds) and _ID computed from it, so cursor consumers are unaware of the key change.
+     */
+    private static final Map<String, String> sWeatherProjectionMap = buildWeatherProjectionMap();
+
+    /* Stored columns read by getForecastSnapshot, in the order it decodes them */
+    private static final String[] SNAPSHOT_PROJECTION = {
+            WeatherEntry.COLUMN_DAY,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+
+    private static final String WEATHER_STORED_COLUMNS =
+            WeatherEntry.COLUMN_LOCATION_ID + ", "
+                    + WeatherEntry.COLUMN_DAY + ", "
+                    + WeatherEntry.COLUMN_WEATHER_ID + ", "
+                    + WeatherEntry.COLUMN_MIN_TEMP + ", "
+                    + WeatherEntry.COLUMN_MAX_TEMP + ", "
+                    + WeatherEntry.COLUMN_HUMIDITY + ", "
+                    + WeatherEntry.COLUMN_PRESSURE + ", "
+                    + WeatherEntry.COLUMN_WIND_SPEED + ", "
+                    + WeatherEntry.COLUMN_DEGREES;
+
+    /* Copies the days of a location before a given day from the weather table to the archive */
+    private static final String SQL_ARCHIVE_PAST_DAYS =
+            "INSERT OR REPLACE INTO " + WeatherEntry.ARCHIVE_TABLE_NAME
+                    + " (" + WEATHER_STORED_COLUMNS + ") "
+                    + "SELECT " + WEATHER_STORED_COLUMNS
+                    + " FROM " + WeatherEntry.TABLE_NAME
+                    + " WHERE " + WeatherEntry.COLUMN_LOCATION_ID + " = ?"
+                    + " AND " + WeatherEntry.COLUMN_DAY + " < ?";
+
     private WeatherDbHelper mOpenHelper;
 
+    /*
+     * Location setting and _ID of the preferred location, resolved once per setting so that
+     * CODE_WEATHER and CODE_WEATHER_WITH_DATE requests don't look the location up every time
+     */
+    private volatile PreferredLocation mPreferredLocation;
+
+    /*
+     * Day number up to which past days of every location have been moved out of the weather
+     * table. When the day rolls over, the first write or compaction moves the days that just
+     * passed, see archivePastDaysOnWrite. Queries never write, they filter past days out.
+     */
+    private volatile long mPurgedDay = Long.MIN_VALUE;
+
+    /* Latency of queries and writes, see dump */
+    private final ProviderStats mStats = new ProviderStats();
+
+    /* Rows served to single day lookups, invalidated once every write of the provider commits */
+    private final WeatherRowCache mRowCache = new WeatherRowCache(ROW_CACHE_SIZE);
+
+    /*
+     * Set while a batch runs on the calling thread. Changes of the individual operations are
+     * collected and notified together once the batch is committed.
+     */
+    private final ThreadLocal<WeatherChangeSet> mBatchChanges = new ThreadLocal<>();
+
     /**
      * Creates the UriMatcher that will match each URI to the CODE_WEATHER and
      * CODE_WEATHER_WITH_DATE constants defined above.
@@ -55,9 +149,231 @@ public class WeatherProvider extends ContentProvider {
          */
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/#", CODE_WEATHER_WITH_DATE);
 
+        /*
+         * These URIs look like content://com.jdemaagd.brilhodosol/weather/location/3 and
+         * content://com.jdemaagd.brilhodosol/weather/location/3/1472214172, they address the
+         * forecast of a location by its _ID regardless of the location set in preferences
+         */
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_LOCATION + "/#",
+                CODE_WEATHER_WITH_LOCATION);
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_LOCATION + "/#/#",
+                CODE_WEATHER_WITH_LOCATION_AND_DATE);
+
+        /*
+         * This URI looks like content://com.jdemaagd.brilhodosol/weather/range/1471564800000/1472169600000
+         * and addresses the days between two dates of the preferred location
+         */
+        matcher.addURI(authority,
+                WeatherContract.PATH_WEATHER + "/" + WeatherContract.PATH_RANGE + "/#/#",
+                CODE_WEATHER_RANGE);
+
+        /* This URI is content://com.jdemaagd.brilhodosol/location/ */
+        matcher.addURI(authority, WeatherContract.PATH_LOCATION, CODE_LOCATION);
+
         return matcher;
     }
 
+    private static Map<String, String> buildWeatherProjectionMap() {
+        Map<String, String> projectionMap = new HashMap<>();
+
+        projectionMap.put(WeatherEntry._ID,
+                WeatherEntry.COLUMN_DAY + " AS " + WeatherEntry._ID);
+        projectionMap.put(WeatherEntry.COLUMN_DATE,
+                WeatherEntry.COLUMN_DAY + " * " + AppDateUtils.DAY_IN_MILLIS
+                        + " AS " + WeatherEntry.COLUMN_DATE);
+
+        String[] storedColumns = {
+                WeatherEntry.COLUMN_LOCATION_ID,
+                WeatherEntry.COLUMN_DAY,
+                WeatherEntry.COLUMN_WEATHER_ID,
+                WeatherEntry.COLUMN_MIN_TEMP,
+                WeatherEntry.COLUMN_MAX_TEMP,
+                WeatherEntry.COLUMN_HUMIDITY,
+                WeatherEntry.COLUMN_PRESSURE,
+                WeatherEntry.COLUMN_WIND_SPEED,
+                WeatherEntry.COLUMN_DEGREES
+        };
+        for (String column : storedColumns) {
+            projectionMap.put(column, column);
+        }
+
+        return projectionMap;
+    }
+
+    /**
+     * Returns a query builder over the weather rows of one location that maps the virtual columns
+     * The location restriction is a prefix of the primary key, so every query is a range read
+     *
+     * @param locationId _ID of the location
+     * @return A new SQLiteQueryBuilder
+     */
+    private static SQLiteQueryBuilder newWeatherQueryBuilder(long locationId) {
+        return newWeatherQueryBuilder(WeatherEntry.TABLE_NAME, locationId);
+    }
+
+    /**
+     * Returns a query builder over the rows of one location in the weather or archive table
+     *
+     * @param table      WeatherEntry.TABLE_NAME or WeatherEntry.ARCHIVE_TABLE_NAME
+     * @param locationId _ID of the location
+     * @return A new SQLiteQueryBuilder
+     */
+    private static SQLiteQueryBuilder newWeatherQueryBuilder(String table, long locationId) {
+        SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
+        queryBuilder.setTables(table);
+        queryBuilder.setProjectionMap(sWeatherProjectionMap);
+        queryBuilder.appendWhere(WeatherEntry.COLUMN_LOCATION_ID + " = " + locationId);
+
+        return queryBuilder;
+    }
+
+    /**
+     * Returns the location _ID path segment of a CODE_WEATHER_WITH_LOCATION(_AND_DATE) URI
+     *
+     * @param uri weather/location/#[/#] URI
+     * @return _ID of the location
+     */
+    private static long getLocationIdFromUri(Uri uri) {
+        return Long.parseLong(uri.getPathSegments().get(2));
+    }
+
+    /**
+     * Returns _ID of the location set in preferences, adding it to the location table if needed
+     * Only write paths may call this, reads use {@link #findPreferredLocationId}
+     *
+     * @return _ID of the preferred location
+     */
+    private long getOrInsertPreferredLocationId() {
+        String locationSetting = AppPreferences.getPreferredWeatherLocation(getContext());
+
+        PreferredLocation preferredLocation = mPreferredLocation;
+        if (preferredLocation != null && preferredLocation.setting.equals(locationSetting)) {
+            return preferredLocation.id;
+        }
+
+        long locationId = getOrInsertLocationId(locationSetting);
+        mPreferredLocation = new PreferredLocation(locationSetting, locationId);
+
+        return locationId;
+    }
+
+    /**
+     * Returns _ID of the location set in preferences without writing to the database
+     * Until a sync stores the location there is nothing to read, queries of the preferred
+     *      location then match no row
+     *
+     * @return _ID of the preferred location, NO_LOCATION_ID if it is not stored yet
+     */
+    private long findPreferredLocationId() {
+        String locationSetting = AppPreferences.getPreferredWeatherLocation(getContext());
+
+        PreferredLocation preferredLocation = mPreferredLocation;
+        if (preferredLocation != null && preferredLocation.setting.equals(locationSetting)) {
+            return preferredLocation.id;
+        }
+
+        long locationId = findLocationId(mOpenHelper.getReadableDatabase(), locationSetting);
+        if (locationId != NO_LOCATION_ID) {
+            mPreferredLocation = new PreferredLocation(locationSetting, locationId);
+        }
+
+        return locationId;
+    }
+
+    /**
+     * Returns _ID of a location, adding it to the location table if needed
+     *
+     * @param locationSetting Location setting, see LocationEntry.COLUMN_LOCATION_SETTING
+     * @return _ID of the location
+     */
+    private long getOrInsertLocationId(String locationSetting) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+
+        long locationId = findLocationId(db, locationSetting);
+        if (locationId != NO_LOCATION_ID) {
+            return locationId;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+
+        return db.insertOrThrow(LocationEntry.TABLE_NAME, null, values);
+    }
+
+    /**
+     * Looks a location up by its setting
+     *
+     * @param db              Database to read
+     * @param locationSetting Location setting, see LocationEntry.COLUMN_LOCATION_SETTING
+     * @return _ID of the location, NO_LOCATION_ID if it is not stored
+     */
+    private static long findLocationId(SQLiteDatabase db, String locationSetting) {
+        Cursor cursor = db.query(LocationEntry.TABLE_NAME,
+                new String[]{LocationEntry._ID},
+                LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{locationSetting},
+                null,
+                null,
+                null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : NO_LOCATION_ID;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Updates the columns of a stored location that differ from the given values
+     *
+     * @param db         Database, inside a transaction
+     * @param locationId _ID of the location
+     * @param values     New column values
+     * @return true if a column changed
+     */
+    private static boolean updateLocationIfChanged(SQLiteDatabase db, long locationId,
+                                                   ContentValues values) {
+        String[] columns = values.keySet().toArray(new String[0]);
+        String selection = LocationEntry._ID + " = " + locationId;
+
+        Cursor cursor = db.query(LocationEntry.TABLE_NAME, columns, selection, null,
+                null, null, null);
+        try {
+            if (!cursor.moveToFirst()) return false;
+
+            boolean changed = false;
+            for (int i = 0; i < columns.length && !changed; i++) {
+                Object value = values.get(columns[i]);
+                if (value == null || cursor.isNull(i)) {
+                    changed = value != null || !cursor.isNull(i);
+                } else if (value instanceof Number) {
+                    changed = Double.compare(
+                            ((Number) value).doubleValue(), cursor.getDouble(i)) != 0;
+                } else {
+                    changed = !value.toString().equals(cursor.getString(i));
+                }
+            }
+            if (!changed) return false;
+        } finally {
+            cursor.close();
+        }
+
+        return db.update(LocationEntry.TABLE_NAME, values, selection, null) > 0;
+    }
+
+    /**
+     * Returns day number key of a date path segment
+     *
+     * @param normalizedUtcDateString Normalized UTC date in milliseconds
+     * @return The day number as a selection argument
+     */
+    private static String getDayNumberArgument(String normalizedUtcDateString) {
+        long normalizedUtcDate = Long.parseLong(normalizedUtcDateString);
+
+        return Long.toString(AppDateUtils.getDayNumberForNormalizedDate(normalizedUtcDate));
+    }
+
     /**
      * In onCreate, we initialize our content provider on startup. This method is called for all
      * registered content providers on the application main thread at application launch time.
@@ -96,37 +412,517 @@ public class WeatherProvider extends ContentProvider {
      */
     @Override
     public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
 
-        switch (sUriMatcher.match(uri)) {
+        int code = sUriMatcher.match(uri);
+        long locationId;
+        switch (code) {
             case CODE_WEATHER:
-                db.beginTransaction();
-                int rowsInserted = 0;
-                try {
-                    for (ContentValues value : values) {
-                        long weatherDate =
-                                value.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
-                        if (!AppDateUtils.isDateNormalized(weatherDate)) {
-                            throw new IllegalArgumentException("Date must be normalized to insert");
-                        }
+                locationId = getOrInsertPreferredLocationId();
+                break;
+            case CODE_WEATHER_WITH_LOCATION:
+                locationId = getLocationIdFromUri(uri);
+                break;
+            default:
+                return super.bulkInsert(uri, values);
+        }
 
-                        long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            rowsInserted++;
+        WeatherChangeSet changes = new WeatherChangeSet();
+        long today = getTodayDayNumber();
+        db.beginTransactionNonExclusive();
+        int rowsInserted = 0;
+        WeatherBulkInserter inserter = null;
+        try {
+            inserter = new WeatherBulkInserter(db);
+            if (archivePastDaysOnWrite(db, locationId, today) > 0) {
+                changes.addSummary();
+            }
+            for (ContentValues value : values) {
+                if (inserter.insert(value, locationId)) {
+                    changes.addDay(locationId, AppDateUtils.getDayNumberForNormalizedDate(
+                            value.getAsLong(WeatherEntry.COLUMN_DATE)));
+                    rowsInserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            if (inserter != null) inserter.close();
+            db.endTransaction();
+            mRowCache.invalidate();
+        }
+        mPurgedDay = today;
+
+        notifyChanges(changes);
+
+        mStats.record(ProviderStats.OP_BULK_INSERT, getUriCodeName(code), uri,
+                SystemClock.elapsedRealtimeNanos() - startNanos, rowsInserted);
+        return rowsInserted;
+    }
+
+    /**
+     * Handles provider specific methods, see {@link WeatherContract#METHOD_REPLACE_FORECAST}
+     *
+     * @param method The method name to call
+     * @param arg    Unused
+     * @param extras Arguments of the method
+     * @return Result of the method
+     */
+    @Override
+    public Bundle call(@NonNull String method, String arg, Bundle extras) {
+        switch (method) {
+            case WeatherContract.METHOD_REPLACE_FORECAST:
+                return replaceForecast(extras);
+            case WeatherContract.METHOD_BULK_INSERT_BATCH:
+                return bulkInsertBatch(ForecastBatch.fromBundle(extras));
+            case WeatherContract.METHOD_COMPACT_ARCHIVE:
+                return compactArchive(extras);
+            case WeatherContract.METHOD_GET_ROW_CACHE_STATS:
+                return getRowCacheStats();
+            case WeatherContract.METHOD_GET_FORECAST_SNAPSHOT:
+                return getForecastSnapshot(extras);
+            default:
+                return super.call(method, arg, extras);
+        }
+    }
+
+    /**
+     * Applies a batch of operations in a single transaction
+     * Operations do not notify observers individually, the changes of the whole batch
+     *      are notified after it is committed
+     * <p>
+     * Only operations the provider implements can be batched: deletes of weather rows and
+     *      locations, and inserts of locations. Weather rows are written with bulkInsert or
+     *      {@link WeatherContract#METHOD_REPLACE_FORECAST}, not with insert or update.
+     *
+     * @param operations The operations to apply
+     * @return The results of the applications
+     * @throws OperationApplicationException if any operation fails, nothing is committed then
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+
+        ContentProviderResult[] results;
+        WeatherChangeSet batchChanges = new WeatherChangeSet();
+        mBatchChanges.set(batchChanges);
+        db.beginTransactionNonExclusive();
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mBatchChanges.remove();
+            // Only now can readers no longer see the rows the operations replaced
+            mRowCache.invalidate();
+        }
+
+        notifyChanges(batchChanges);
+
+        return results;
+    }
+
+    /**
+     * Upserts changed forecast rows and deletes stale rows in one transaction
+     * Days before today are moved to the archive instead of being dropped, whether or not
+     *      they are listed as stale
+     *
+     * @param extras EXTRA_FORECAST_VALUES (ContentValues[]) and EXTRA_STALE_DATES (long[]),
+     *               either may be absent, and the optional EXTRA_LOCATION_ID
+     * @return Bundle holding the number of rows written or deleted in EXTRA_ROWS_CHANGED
+     * @throws IllegalArgumentException if extras is null
+     */
+    private Bundle replaceForecast(Bundle extras) {
+        if (extras == null) {
+            throw new IllegalArgumentException("Forecast extras are required");
+        }
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        Parcelable[] values = extras.getParcelableArray(WeatherContract.EXTRA_FORECAST_VALUES);
+        long[] staleDates = extras.getLongArray(WeatherContract.EXTRA_STALE_DATES);
+
+        int code = extras.containsKey(WeatherContract.EXTRA_LOCATION_ID)
+                ? CODE_WEATHER_WITH_LOCATION
+                : CODE_WEATHER;
+        long locationId = code == CODE_WEATHER_WITH_LOCATION
+                ? extras.getLong(WeatherContract.EXTRA_LOCATION_ID)
+                : getOrInsertPreferredLocationId();
+
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        WeatherChangeSet changes = new WeatherChangeSet();
+        int rowsChanged = 0;
+        long today = getTodayDayNumber();
+
+        db.beginTransactionNonExclusive();
+        try {
+            int rowsArchived = archivePastDaysOnWrite(db, locationId, today);
+            if (rowsArchived > 0) {
+                changes.addSummary();
+                rowsChanged += rowsArchived;
+            }
+
+            if (staleDates != null) {
+                String[] selectionArgs = {Long.toString(locationId), null};
+                for (long staleDate : staleDates) {
+                    long staleDay = AppDateUtils.getDayNumberForNormalizedDate(staleDate);
+                    selectionArgs[1] = Long.toString(staleDay);
+                    if (db.delete(WeatherEntry.TABLE_NAME,
+                            WeatherEntry.COLUMN_LOCATION_ID + " = ? AND "
+                                    + WeatherEntry.COLUMN_DAY + " = ?",
+                            selectionArgs) > 0) {
+                        changes.addDay(locationId, staleDay);
+                        rowsChanged++;
+                    }
+                }
+            }
+
+            if (values != null) {
+                WeatherBulkInserter inserter = new WeatherBulkInserter(db);
+                try {
+                    for (Parcelable value : values) {
+                        ContentValues contentValues = (ContentValues) value;
+                        if (inserter.insert(contentValues, locationId)) {
+                            changes.addDay(locationId,
+                                    AppDateUtils.getDayNumberForNormalizedDate(
+                                            contentValues.getAsLong(WeatherEntry.COLUMN_DATE)));
+                            rowsChanged++;
                         }
                     }
-                    db.setTransactionSuccessful();
                 } finally {
-                    db.endTransaction();
+                    inserter.close();
                 }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mRowCache.invalidate();
+        }
+        mPurgedDay = today;
+
+        notifyChanges(changes);
+
+        mStats.record(ProviderStats.OP_REPLACE_FORECAST, getUriCodeName(code),
+                WeatherEntry.CONTENT_URI, SystemClock.elapsedRealtimeNanos() - startNanos,
+                rowsChanged);
 
-                if (rowsInserted > 0) {
-                    getContext().getContentResolver().notifyChange(uri, null);
+        Bundle result = new Bundle();
+        result.putInt(WeatherContract.EXTRA_ROWS_CHANGED, rowsChanged);
+
+        return result;
+    }
+
+    /**
+     * Inserts every row of a columnar batch in one transaction
+     * The batch may hold the forecasts of many locations, they are all committed at once
+     *
+     * @param batch Rows to insert
+     * @return Bundle holding the number of rows written in EXTRA_ROWS_CHANGED
+     */
+    private Bundle bulkInsertBatch(ForecastBatch batch) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        long preferredLocationId = getOrInsertPreferredLocationId();
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        WeatherChangeSet changes = new WeatherChangeSet();
+        int rowsInserted;
+        long today = getTodayDayNumber();
+
+        db.beginTransactionNonExclusive();
+        WeatherBulkInserter inserter = null;
+        try {
+            inserter = new WeatherBulkInserter(db);
+            if (archivePastDays(db, today) > 0) {
+                changes.addSummary();
+            }
+            rowsInserted = inserter.insert(batch, preferredLocationId, changes);
+            db.setTransactionSuccessful();
+        } finally {
+            if (inserter != null) inserter.close();
+            db.endTransaction();
+            mRowCache.invalidate();
+        }
+        mPurgedDay = today;
+
+        notifyChanges(changes);
+
+        // A batch may span many locations, it is recorded under no single URI code
+        mStats.record(ProviderStats.OP_BULK_INSERT_BATCH, null, WeatherEntry.CONTENT_URI,
+                SystemClock.elapsedRealtimeNanos() - startNanos, rowsInserted);
+
+        Bundle result = new Bundle();
+        result.putInt(WeatherContract.EXTRA_ROWS_CHANGED, rowsInserted);
+
+        return result;
+    }
+
+    /**
+     * Reads the forecast from today onwards into primitive arrays
+     *
+     * @param extras Optional EXTRA_LOCATION_ID, may be null
+     * @return Bundle of a ForecastSnapshot
+     */
+    private Bundle getForecastSnapshot(Bundle extras) {
+        long locationId = extras != null && extras.containsKey(WeatherContract.EXTRA_LOCATION_ID)
+                ? extras.getLong(WeatherContract.EXTRA_LOCATION_ID)
+                : findPreferredLocationId();
+
+        Cursor cursor = newWeatherQueryBuilder(locationId).query(
+                mOpenHelper.getReadableDatabase(),
+                SNAPSHOT_PROJECTION,
+                WeatherEntry.getSqlSelectForTodayOnwards(),
+                WeatherEntry.getSqlSelectArgsForTodayOnwards(),
+                null,
+                null,
+                WeatherEntry.COLUMN_DAY + " ASC");
+        try {
+            int size = cursor.getCount();
+            long[] dates = new long[size];
+            int[] weatherIds = new int[size];
+            double[] minTemps = new double[size];
+            double[] maxTemps = new double[size];
+            double[] humidities = new double[size];
+            double[] pressures = new double[size];
+            double[] windSpeeds = new double[size];
+            double[] degrees = new double[size];
+
+            for (int i = 0; cursor.moveToNext(); i++) {
+                dates[i] = cursor.getLong(0) * AppDateUtils.DAY_IN_MILLIS;
+                weatherIds[i] = cursor.getInt(1);
+                minTemps[i] = cursor.getDouble(2);
+                maxTemps[i] = cursor.getDouble(3);
+                humidities[i] = cursor.getDouble(4);
+                pressures[i] = cursor.getDouble(5);
+                windSpeeds[i] = cursor.getDouble(6);
+                degrees[i] = cursor.getDouble(7);
+            }
+
+            return new ForecastSnapshot(dates, weatherIds, minTemps, maxTemps, humidities,
+                    pressures, windSpeeds, degrees).toBundle();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return Bundle holding the hit and miss counts of the row cache
+     */
+    private Bundle getRowCacheStats() {
+        Bundle result = new Bundle();
+        result.putInt(WeatherContract.EXTRA_CACHE_HITS, mRowCache.hitCount());
+        result.putInt(WeatherContract.EXTRA_CACHE_MISSES, mRowCache.missCount());
+
+        return result;
+    }
+
+    /**
+     * Returns a single weather row from the row cache, reading and caching it on a miss
+     *
+     * @param locationId _ID of the location
+     * @param day        Day number
+     * @param projection Requested columns, see WeatherRowCache#canServe
+     * @return Cursor holding the row, or no row if the day is not stored
+     */
+    private Cursor queryCachedRow(long locationId, long day, String[] projection) {
+        WeatherRowCache.Row row = mRowCache.get(locationId, day);
+
+        if (row == null) {
+            long generation = mRowCache.getGeneration();
+            Cursor storedRow = newWeatherQueryBuilder(locationId).query(
+                    mOpenHelper.getReadableDatabase(),
+                    WeatherRowCache.ROW_PROJECTION,
+                    WeatherEntry.COLUMN_DAY + " = ? ",
+                    new String[]{Long.toString(day)},
+                    null,
+                    null,
+                    null);
+            try {
+                if (!storedRow.moveToFirst()) {
+                    return new MatrixCursor(projection, 0);
                 }
-                return rowsInserted;
-            default:
-                return super.bulkInsert(uri, values);
+                row = new WeatherRowCache.Row(storedRow);
+            } finally {
+                storedRow.close();
+            }
+
+            mRowCache.put(row, generation);
+        }
+
+        return row.toCursor(projection);
+    }
+
+    /**
+     * @return Day number of today, the first day of the forecast
+     */
+    private static long getTodayDayNumber() {
+        return AppDateUtils.getDayNumberForNormalizedDate(
+                AppDateUtils.getNormalizedUtcDateForToday());
+    }
+
+    /**
+     * Moves the days of a location before today from the weather table to the archive
+     * Both statements are primary key ranges of the location, and only touch the days that
+     *      passed since the last purge, so the cost doesn't grow with the time between syncs
+     *
+     * @param db         Database, inside a transaction
+     * @param locationId _ID of the location
+     * @param today      Day number of today
+     * @return Number of rows moved
+     */
+    private static int archivePastDays(SQLiteDatabase db, long locationId, long today) {
+        SQLiteStatement archiveStatement = db.compileStatement(SQL_ARCHIVE_PAST_DAYS);
+        try {
+            archiveStatement.bindLong(1, locationId);
+            archiveStatement.bindLong(2, today);
+            archiveStatement.execute();
+        } finally {
+            archiveStatement.close();
         }
+
+        return db.delete(WeatherEntry.TABLE_NAME,
+                WeatherEntry.COLUMN_LOCATION_ID + " = ? AND " + WeatherEntry.COLUMN_DAY + " < ?",
+                new String[]{Long.toString(locationId), Long.toString(today)});
+    }
+
+    /**
+     * Moves the days before today of every location to the archive
+     *
+     * @param db    Database, inside a transaction
+     * @param today Day number of today
+     * @return Number of rows moved
+     */
+    private static int archivePastDays(SQLiteDatabase db, long today) {
+        int rowsMoved = 0;
+        Cursor locations = db.query(LocationEntry.TABLE_NAME,
+                new String[]{LocationEntry._ID},
+                null,
+                null,
+                null,
+                null,
+                null);
+        try {
+            while (locations.moveToNext()) {
+                rowsMoved += archivePastDays(db, locations.getLong(0), today);
+            }
+        } finally {
+            locations.close();
+        }
+
+        return rowsMoved;
+    }
+
+    /**
+     * Moves past days to the archive as part of a write of one location
+     * The first write on a new day moves those of every location, so rows of locations no sync
+     *      writes don't pile up in the weather table. The caller sets mPurgedDay to today once
+     *      its transaction is committed.
+     *
+     * @param db         Database, inside a transaction
+     * @param locationId _ID of the written location
+     * @param today      Day number of today
+     * @return Number of rows moved
+     */
+    private int archivePastDaysOnWrite(SQLiteDatabase db, long locationId, long today) {
+        return today == mPurgedDay
+                ? archivePastDays(db, locationId, today)
+                : archivePastDays(db, today);
+    }
+
+    /**
+     * Deletes archived days that left the retention window, after archiving the days that passed
+     * since the last write
+     * Rows are deleted location by location so each delete is a primary key range
+     *      of the archive rather than a scan of the whole table
+     *
+     * @param extras EXTRA_RETENTION_DAYS, the number of days before today to keep
+     * @return Bundle holding the number of rows deleted in EXTRA_ROWS_CHANGED
+     * @throws IllegalArgumentException if extras is null or lacks EXTRA_RETENTION_DAYS
+     */
+    private Bundle compactArchive(Bundle extras) {
+        if (extras == null || !extras.containsKey(WeatherContract.EXTRA_RETENTION_DAYS)) {
+            throw new IllegalArgumentException("Retention days are required");
+        }
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        int retentionDays = extras.getInt(WeatherContract.EXTRA_RETENTION_DAYS);
+        long today = getTodayDayNumber();
+        long oldestKeptDay = today - retentionDays;
+
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        int rowsArchived = 0;
+        int rowsDeleted = 0;
+
+        db.beginTransactionNonExclusive();
+        try {
+            /*
+             * Days that passed since the last write are archived first, so they are subject to
+             * the retention window too. Observers are not notified of the move, queries already
+             * exclude past days with WeatherEntry#getSqlSelectForTodayOnwards.
+             */
+            if (today != mPurgedDay) {
+                rowsArchived = archivePastDays(db, today);
+            }
+
+            Cursor locations = db.query(LocationEntry.TABLE_NAME,
+                    new String[]{LocationEntry._ID},
+                    null,
+                    null,
+                    null,
+                    null,
+                    null);
+            try {
+                String[] selectionArgs = {null, Long.toString(oldestKeptDay)};
+                while (locations.moveToNext()) {
+                    selectionArgs[0] = Long.toString(locations.getLong(0));
+                    rowsDeleted += db.delete(WeatherEntry.ARCHIVE_TABLE_NAME,
+                            WeatherEntry.COLUMN_LOCATION_ID + " = ? AND "
+                                    + WeatherEntry.COLUMN_DAY + " < ?",
+                            selectionArgs);
+                }
+            } finally {
+                locations.close();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            if (rowsArchived > 0) {
+                mRowCache.invalidate();
+            }
+        }
+        mPurgedDay = today;
+
+        // Only ranges read the archive
+        if (rowsDeleted > 0) {
+            WeatherChangeSet changes = new WeatherChangeSet();
+            changes.addSummary();
+            notifyChanges(changes);
+        }
+
+        mStats.record(ProviderStats.OP_COMPACT_ARCHIVE, null, WeatherEntry.CONTENT_URI,
+                SystemClock.elapsedRealtimeNanos() - startNanos, rowsDeleted);
+
+        Bundle result = new Bundle();
+        result.putInt(WeatherContract.EXTRA_ROWS_CHANGED, rowsDeleted);
+
+        return result;
+    }
+
+    /**
+     * Notifies observers of committed changes, unless a batch is running on this thread
+     * in which case the changes are notified with those of the batch when it completes
+     *
+     * @param changes Changes of a write
+     */
+    private void notifyChanges(WeatherChangeSet changes) {
+        if (changes.isEmpty()) return;
+
+        WeatherChangeSet batchChanges = mBatchChanges.get();
+        if (batchChanges != null) {
+            batchChanges.addAll(changes);
+            return;
+        }
+
+        changes.notifyObservers(getContext().getContentResolver(), findPreferredLocationId());
     }
 
     /**
@@ -146,10 +942,12 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public Cursor query(@NonNull Uri uri, String[] projection, String selection,
                         String[] selectionArgs, String sortOrder) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        int code = sUriMatcher.match(uri);
 
         Cursor cursor;
 
-        switch (sUriMatcher.match(uri)) {
+        switch (code) {
 
             /*
              * When sUriMatcher's match method is called with a URI that looks something like this
@@ -164,7 +962,8 @@ public class WeatherProvider extends ContentProvider {
              * In this case, we want to return a cursor that contains one row of weather data for
              * a particular date.
              */
-            case CODE_WEATHER_WITH_DATE: {
+            case CODE_WEATHER_WITH_DATE:
+            case CODE_WEATHER_WITH_LOCATION_AND_DATE: {
 
                 /*
                  * In order to determine the date associated with this URI, we look at the last
@@ -177,12 +976,28 @@ public class WeatherProvider extends ContentProvider {
                  * The query method accepts a string array of arguments, as there may be more
                  * than one "?" in the selection statement. Even though in our case, we only have
                  * one "?", we have to create a string array that only contains one element
-                 * because this method signature accepts a string array.
+                 * because this method signature accepts a string array. Rows are keyed by day
+                 * number, so the date is converted and the lookup is a primary key probe.
                  */
-                String[] selectionArguments = new String[]{normalizedUtcDateString};
+                String[] selectionArguments =
+                        new String[]{getDayNumberArgument(normalizedUtcDateString)};
 
-                cursor = mOpenHelper.getReadableDatabase().query(
-                        WeatherContract.WeatherEntry.TABLE_NAME,
+                long locationId = code == CODE_WEATHER_WITH_DATE
+                        ? findPreferredLocationId()
+                        : getLocationIdFromUri(uri);
+
+                /*
+                 * Detail and notification lookups are served from the row cache, which only
+                 * queries the database the first time a row is asked for after a write
+                 */
+                if (WeatherRowCache.canServe(projection)) {
+                    cursor = queryCachedRow(locationId,
+                            Long.parseLong(selectionArguments[0]), projection);
+                    break;
+                }
+
+                cursor = newWeatherQueryBuilder(locationId).query(
+                        mOpenHelper.getReadableDatabase(),
                         /*
                          * A projection designates the columns we want returned in our Cursor.
                          * Passing null will return all columns of data within the Cursor.
@@ -199,16 +1014,83 @@ public class WeatherProvider extends ContentProvider {
                          * within the selectionArguments array will be inserted into the
                          * selection statement by SQLite under the hood.
                          */
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ",
+                        WeatherEntry.COLUMN_DAY + " = ? ",
                         selectionArguments,
                         null,
                         null,
                         sortOrder);
                 break;
             }
-            case CODE_WEATHER: {
+            case CODE_WEATHER:
+            case CODE_WEATHER_WITH_LOCATION: {
+                long locationId = code == CODE_WEATHER
+                        ? findPreferredLocationId()
+                        : getLocationIdFromUri(uri);
+                String limit = uri.getQueryParameter(WeatherContract.QUERY_PARAMETER_LIMIT);
+                SQLiteQueryBuilder queryBuilder = newWeatherQueryBuilder(locationId);
+
+                // Callers pass their own selections, check the new ones use the primary key
+                if (BuildConfig.DEBUG) {
+                    mStats.explainIfNew(mOpenHelper.getReadableDatabase(),
+                            queryBuilder.buildQuery(projection, selection, null, null,
+                                    sortOrder, limit),
+                            selectionArgs);
+                }
+
+                cursor = queryBuilder.query(
+                        mOpenHelper.getReadableDatabase(),
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder,
+                        limit);
+                break;
+            }
+            /*
+             * A range spans the archive and the forecast. Each table is read with a primary key
+             * range on (location_id, day) and the two results are concatenated with UNION ALL.
+             */
+            case CODE_WEATHER_RANGE: {
+                long locationId = findPreferredLocationId();
+                List<String> segments = uri.getPathSegments();
+                String rangeSelection = DatabaseUtils.concatenateWhere(
+                        WeatherEntry.COLUMN_DAY + " BETWEEN ? AND ?", selection);
+                String[] rangeArgs = DatabaseUtils.appendSelectionArgs(
+                        new String[]{
+                                getDayNumberArgument(segments.get(2)),
+                                getDayNumberArgument(segments.get(3))},
+                        selectionArgs);
+
+                String archiveQuery = newWeatherQueryBuilder(
+                        WeatherEntry.ARCHIVE_TABLE_NAME, locationId)
+                        .buildQuery(projection, rangeSelection, null, null, null, null);
+                String forecastQuery = newWeatherQueryBuilder(locationId)
+                        .buildQuery(projection, rangeSelection, null, null, null, null);
+
+                String rangeQuery = archiveQuery + " UNION ALL " + forecastQuery;
+                if (sortOrder != null) {
+                    rangeQuery += " ORDER BY " + sortOrder;
+                }
+
+                // Parsed rather than appended as is, the raw query gets no validation of it
+                String limit = uri.getQueryParameter(WeatherContract.QUERY_PARAMETER_LIMIT);
+                if (limit != null) {
+                    rangeQuery += " LIMIT " + Integer.parseInt(limit.trim());
+                }
+
+                String[] unionArgs = DatabaseUtils.appendSelectionArgs(rangeArgs, rangeArgs);
+                if (BuildConfig.DEBUG) {
+                    mStats.explainIfNew(mOpenHelper.getReadableDatabase(), rangeQuery, unionArgs);
+                }
+
+                cursor = mOpenHelper.getReadableDatabase().rawQuery(rangeQuery, unionArgs);
+                break;
+            }
+            case CODE_LOCATION: {
                 cursor = mOpenHelper.getReadableDatabase().query(
-                        WeatherContract.WeatherEntry.TABLE_NAME,
+                        LocationEntry.TABLE_NAME,
                         projection,
                         selection,
                         selectionArgs,
@@ -221,7 +1103,26 @@ public class WeatherProvider extends ContentProvider {
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
 
-        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        /*
+         * Cursors of many days are notified once per write on the summary URI, single days and
+         * locations on their own URI
+         */
+        Uri notificationUri;
+        switch (code) {
+            case CODE_WEATHER:
+            case CODE_WEATHER_WITH_LOCATION:
+            case CODE_WEATHER_RANGE:
+                notificationUri = WeatherEntry.SUMMARY_URI;
+                break;
+            default:
+                notificationUri = uri;
+        }
+        cursor.setNotificationUri(getContext().getContentResolver(), notificationUri);
+
+        // getCount runs the query, so the recorded latency includes reading the rows
+        int rows = cursor.getCount();
+        mStats.record(ProviderStats.OP_QUERY, getUriCodeName(code), uri,
+                SystemClock.elapsedRealtimeNanos() - startNanos, rows);
 
         return cursor;
     }
@@ -230,13 +1131,17 @@ public class WeatherProvider extends ContentProvider {
      * Deletes data at a given URI with optional arguments for more fine tuned deletions.
      *
      * @param uri           The full URI to query
-     * @param selection     An optional restriction to apply to rows when deleting.
+     * @param selection     An optional restriction to apply to rows when deleting. Only stored
+     *                      columns can be used, i.e. COLUMN_DAY instead of COLUMN_DATE.
      * @param selectionArgs Used in conjunction with the selection statement
      * @return The number of rows deleted
      */
     @Override
     public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        int code = sUriMatcher.match(uri);
         int numRowsDeleted;
+        WeatherChangeSet changes = new WeatherChangeSet();
 
         /*
          * If we pass null as the selection to SQLiteDatabase#delete, our entire table will be
@@ -247,24 +1152,91 @@ public class WeatherProvider extends ContentProvider {
          */
         if (null == selection) selection = "1";
 
-        switch (sUriMatcher.match(uri)) {
+        switch (code) {
             case CODE_WEATHER:
+            case CODE_WEATHER_WITH_LOCATION: {
+                long locationId = code == CODE_WEATHER
+                        ? findPreferredLocationId()
+                        : getLocationIdFromUri(uri);
+
+                // Only the rows of the location are deleted
+                numRowsDeleted = deleteWeather(locationId, selection, selectionArgs, changes);
+                break;
+            }
+            case CODE_LOCATION:
+                // Forecast rows of deleted locations go with them (ON DELETE CASCADE)
                 numRowsDeleted = mOpenHelper.getWritableDatabase().delete(
-                        WeatherContract.WeatherEntry.TABLE_NAME,
+                        LocationEntry.TABLE_NAME,
                         selection,
                         selectionArgs);
+                if (numRowsDeleted != 0) {
+                    mPreferredLocation = null;
+                    // Every day of the deleted locations is gone
+                    changes.addUri(WeatherEntry.CONTENT_URI);
+                    changes.addUri(uri);
+                }
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
 
         if (numRowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            /*
+             * Inside a batch the delete is not committed yet, a row read and cached now would be
+             * the old one. applyBatch invalidates the cache once the whole batch is committed.
+             */
+            if (mBatchChanges.get() == null) {
+                mRowCache.invalidate();
+            }
+            notifyChanges(changes);
         }
 
+        mStats.record(ProviderStats.OP_DELETE, getUriCodeName(code), uri,
+                SystemClock.elapsedRealtimeNanos() - startNanos, numRowsDeleted);
         return numRowsDeleted;
     }
 
+    /**
+     * Deletes weather rows of a location, recording the deleted days
+     *
+     * @param locationId    _ID of the location
+     * @param selection     Restriction on stored columns, "1" for every row
+     * @param selectionArgs Arguments of the selection
+     * @param changes       Receives the deleted days
+     * @return The number of rows deleted
+     */
+    private int deleteWeather(long locationId, String selection, String[] selectionArgs,
+                              WeatherChangeSet changes) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        String locationSelection = WeatherEntry.COLUMN_LOCATION_ID + " = " + locationId
+                + " AND (" + selection + ")";
+
+        db.beginTransactionNonExclusive();
+        try {
+            Cursor deletedDays = db.query(WeatherEntry.TABLE_NAME,
+                    new String[]{WeatherEntry.COLUMN_DAY},
+                    locationSelection,
+                    selectionArgs,
+                    null,
+                    null,
+                    null);
+            try {
+                while (deletedDays.moveToNext()) {
+                    changes.addDay(locationId, deletedDays.getLong(0));
+                }
+            } finally {
+                deletedDays.close();
+            }
+
+            int rowsDeleted = db.delete(WeatherEntry.TABLE_NAME, locationSelection, selectionArgs);
+            db.setTransactionSuccessful();
+
+            return rowsDeleted;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     /**
      * Required to override this as WeatherProvider extends ContentProvider and
      * getType is an abstract method in ContentProvider.
@@ -278,18 +1250,55 @@ public class WeatherProvider extends ContentProvider {
     }
 
     /**
-     * Required to override this as WeatherProvider extends ContentProvider
-     * and insert is an abstract method in ContentProvider.
+     * Inserts a location, weather rows are inserted with bulkInsert instead
+     * Inserting a location setting that is already stored updates the columns that differ and
+     *      returns the existing location, so callers can use insert to resolve the _ID of a
+     *      location setting. Observers are only notified if a row was inserted or updated.
      *
      * @param uri    The URI of the insertion request. This must not be null.
      * @param values A set of column_name/value pairs to add to the database.
      *               This must not be null
-     * @return normally the URI for the newly inserted item
+     * @return The URI of the location, see LocationEntry#buildLocationUri
      */
     @Override
     public Uri insert(@NonNull Uri uri, ContentValues values) {
-        throw new RuntimeException(
-                "Not implementing insert. Use bulkInsert instead.");
+        switch (sUriMatcher.match(uri)) {
+            case CODE_LOCATION: {
+                String locationSetting =
+                        values.getAsString(LocationEntry.COLUMN_LOCATION_SETTING);
+                if (locationSetting == null) {
+                    throw new IllegalArgumentException("Location setting is required");
+                }
+
+                final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+                long locationId;
+                boolean changed;
+                db.beginTransactionNonExclusive();
+                try {
+                    locationId = findLocationId(db, locationSetting);
+                    if (locationId == NO_LOCATION_ID) {
+                        locationId = db.insertOrThrow(LocationEntry.TABLE_NAME, null, values);
+                        changed = true;
+                    } else {
+                        changed = updateLocationIfChanged(db, locationId, values);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+                // Resolving a stored location with the same values is not a change
+                if (changed) {
+                    WeatherChangeSet changes = new WeatherChangeSet();
+                    changes.addUri(uri);
+                    notifyChanges(changes);
+                }
+                return LocationEntry.buildLocationUri(locationId);
+            }
+            default:
+                throw new RuntimeException(
+                        "Not implementing insert. Use bulkInsert instead.");
+        }
     }
 
     @Override
@@ -297,6 +1306,60 @@ public class WeatherProvider extends ContentProvider {
         throw new RuntimeException("We are not implementing update in Brilho do Sol");
     }
 
+    /**
+     * Location setting resolved to its _ID
+     */
+    private static final class PreferredLocation {
+
+        final String setting;
+        final long id;
+
+        PreferredLocation(String setting, long id) {
+            this.setting = setting;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Prints latency histograms, slow operations, query plans (debug builds) and row cache counts
+     * i.e. adb shell dumpsys activity provider com.jdemaagd.brilhodosol/.data.WeatherProvider
+     *
+     * @param fd     The raw file descriptor that the dump is being sent to
+     * @param writer The PrintWriter to print the state to
+     * @param args   Additional arguments to the dump request
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("Row cache: hits=" + mRowCache.hitCount()
+                + " misses=" + mRowCache.missCount());
+        mStats.dump(writer);
+    }
+
+    /**
+     * Returns a readable name of a URI code for the statistics
+     *
+     * @param code Code returned by sUriMatcher
+     * @return Name of the code
+     */
+    private static String getUriCodeName(int code) {
+        switch (code) {
+            case CODE_WEATHER:
+                return "CODE_WEATHER";
+            case CODE_WEATHER_WITH_DATE:
+                return "CODE_WEATHER_WITH_DATE";
+            case CODE_WEATHER_WITH_LOCATION:
+                return "CODE_WEATHER_WITH_LOCATION";
+            case CODE_WEATHER_WITH_LOCATION_AND_DATE:
+                return "CODE_WEATHER_WITH_LOCATION_AND_DATE";
+            case CODE_WEATHER_RANGE:
+                return "CODE_WEATHER_RANGE";
+            case CODE_LOCATION:
+                return "CODE_LOCATION";
+            default:
+                return "NO_MATCH";
+        }
+    }
+
     /**
      * You do not need to call this method:
      * http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
@@ -0,0 +1,216 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.util.LruCache;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.utils.AppDateUtils;
+
+/**
+ * Bounded cache of decoded weather rows, keyed by location and day
+ * Serves the single row lookups of WeatherProvider (detail view, notification)
+ *      from memory instead of running a query for a row that was just read
+ * <p>
+ * The whole cache is invalidated after every write of the provider. Writes only happen on
+ *      sync, so dropping everything is cheaper than tracking which rows a write touched.
+ *      A generation number keeps a lookup that raced with a write from caching the old row.
+ */
+final class WeatherRowCache {
+
+    /* Stored columns to read on a miss, in the order decoded by Row */
+    static final String[] ROW_PROJECTION = {
+            WeatherEntry.COLUMN_LOCATION_ID,
+            WeatherEntry.COLUMN_DAY,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+
+    private static final int INDEX_LOCATION_ID = 0;
+    private static final int INDEX_DAY = 1;
+    private static final int INDEX_WEATHER_ID = 2;
+    private static final int INDEX_MIN_TEMP = 3;
+    private static final int INDEX_MAX_TEMP = 4;
+    private static final int INDEX_HUMIDITY = 5;
+    private static final int INDEX_PRESSURE = 6;
+    private static final int INDEX_WIND_SPEED = 7;
+    private static final int INDEX_DEGREES = 8;
+
+    private final LruCache<Long, Row> mRows;
+
+    private long mGeneration;
+
+    /**
+     * @param maxRows Maximum number of rows kept, least recently used rows are evicted first
+     */
+    WeatherRowCache(int maxRows) {
+        mRows = new LruCache<>(maxRows);
+    }
+
+    /**
+     * Returns the cached row of a day, counts a hit or a miss
+     *
+     * @param locationId _ID of the location
+     * @param day        Day number
+     * @return The row, null on a miss
+     */
+    Row get(long locationId, long day) {
+        return mRows.get(key(locationId, day));
+    }
+
+    /**
+     * @return Generation to pass to {@link #put(Row, long)}, read before querying the database
+     */
+    synchronized long getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Caches a row read from the database, unless a write invalidated the cache meanwhile
+     *
+     * @param row        Row read from the database
+     * @param generation Value of {@link #getGeneration()} before the row was read
+     */
+    synchronized void put(Row row, long generation) {
+        if (generation == mGeneration) {
+            mRows.put(key(row.locationId, row.day), row);
+        }
+    }
+
+    /**
+     * Drops every row, to be called once a write has been committed
+     */
+    synchronized void invalidate() {
+        mGeneration++;
+        mRows.evictAll();
+    }
+
+    /**
+     * @return Number of lookups served from memory
+     */
+    int hitCount() {
+        return mRows.hitCount();
+    }
+
+    /**
+     * @return Number of lookups that had to query the database
+     */
+    int missCount() {
+        return mRows.missCount();
+    }
+
+    /**
+     * Returns true if a cursor with the given columns can be built from a cached row
+     *
+     * @param projection Requested columns
+     * @return false for a null projection or a column the cache does not know
+     */
+    static boolean canServe(String[] projection) {
+        if (projection == null) return false;
+
+        for (String column : projection) {
+            if (columnIndex(column) == -1 && !WeatherEntry._ID.equals(column)
+                    && !WeatherEntry.COLUMN_DATE.equals(column)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int columnIndex(String column) {
+        for (int i = 0; i < ROW_PROJECTION.length; i++) {
+            if (ROW_PROJECTION[i].equals(column)) return i;
+        }
+
+        return -1;
+    }
+
+    private static long key(long locationId, long day) {
+        return (locationId << 32) | (day & 0xffffffffL);
+    }
+
+    /**
+     * Decoded weather row, immutable
+     */
+    static final class Row {
+
+        final long locationId;
+        final long day;
+        final int weatherId;
+        final double minTemp;
+        final double maxTemp;
+        final double humidity;
+        final double pressure;
+        final double windSpeed;
+        final double degrees;
+
+        /**
+         * Decodes the current row of a cursor queried with ROW_PROJECTION
+         *
+         * @param cursor Cursor positioned on a row
+         */
+        Row(Cursor cursor) {
+            locationId = cursor.getLong(INDEX_LOCATION_ID);
+            day = cursor.getLong(INDEX_DAY);
+            weatherId = cursor.getInt(INDEX_WEATHER_ID);
+            minTemp = cursor.getDouble(INDEX_MIN_TEMP);
+            maxTemp = cursor.getDouble(INDEX_MAX_TEMP);
+            humidity = cursor.getDouble(INDEX_HUMIDITY);
+            pressure = cursor.getDouble(INDEX_PRESSURE);
+            windSpeed = cursor.getDouble(INDEX_WIND_SPEED);
+            degrees = cursor.getDouble(INDEX_DEGREES);
+        }
+
+        /**
+         * Builds a one row cursor, see {@link #canServe(String[])}
+         *
+         * @param projection Requested columns
+         * @return Cursor holding the row
+         */
+        Cursor toCursor(String[] projection) {
+            Object[] values = new Object[projection.length];
+            for (int i = 0; i < projection.length; i++) {
+                values[i] = getValue(projection[i]);
+            }
+
+            MatrixCursor cursor = new MatrixCursor(projection, 1);
+            cursor.addRow(values);
+
+            return cursor;
+        }
+
+        private Object getValue(String column) {
+            if (WeatherEntry._ID.equals(column)) return day;
+            if (WeatherEntry.COLUMN_DATE.equals(column)) return day * AppDateUtils.DAY_IN_MILLIS;
+
+            switch (columnIndex(column)) {
+                case INDEX_LOCATION_ID:
+                    return locationId;
+                case INDEX_DAY:
+                    return day;
+                case INDEX_WEATHER_ID:
+                    return weatherId;
+                case INDEX_MIN_TEMP:
+                    return minTemp;
+                case INDEX_MAX_TEMP:
+                    return maxTemp;
+                case INDEX_HUMIDITY:
+                    return humidity;
+                case INDEX_PRESSURE:
+                    return pressure;
+                case INDEX_WIND_SPEED:
+                    return windSpeed;
+                case INDEX_DEGREES:
+                    return degrees;
+                default:
+                    throw new IllegalArgumentException("Unknown column: " + column);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interval policy that follows how much the forecast actually changes
+ * <p>
+ * Consecutive unchanged syncs double the interval up to a maximum,
+ *      a volatile near-term forecast halves it down to a minimum
+ *      and any other update returns to the base interval
+ * Whatever the history, the next sync is never scheduled later than
+ *      the point where stored data would exceed the maximum data age
+ */
+public final class AdaptiveSyncIntervalPolicy implements SyncIntervalPolicy {
+
+    static final long MIN_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+    static final long BASE_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(3);
+    static final long MAX_INTERVAL_SECONDS = TimeUnit.HOURS.toSeconds(12);
+
+    static final long MAX_DATA_AGE_SECONDS = TimeUnit.HOURS.toSeconds(18);
+
+    private final SyncClock mClock;
+
+    public AdaptiveSyncIntervalPolicy(SyncClock clock) {
+        mClock = clock;
+    }
+
+    @Override
+    public long getInitialIntervalSeconds() {
+        return BASE_INTERVAL_SECONDS;
+    }
+
+    @Override
+    public long getNextIntervalSeconds(SyncOutcome outcome, long currentIntervalSeconds,
+                                       long lastFreshDataMillis) {
+        long interval;
+
+        switch (outcome.getResult()) {
+            case UNCHANGED:
+                interval = currentIntervalSeconds * 2;
+                break;
+            case UPDATED:
+                interval = outcome.isNearTermVolatile()
+                        ? currentIntervalSeconds / 2
+                        : BASE_INTERVAL_SECONDS;
+                break;
+            case FAILED:
+            default:
+                // Keep trying at the same pace, the data age bound below pulls it in if needed
+                interval = currentIntervalSeconds;
+                break;
+        }
+
+        interval = Math.max(MIN_INTERVAL_SECONDS, Math.min(MAX_INTERVAL_SECONDS, interval));
+
+        if (lastFreshDataMillis > 0) {
+            long dataAgeSeconds = TimeUnit.MILLISECONDS
+                    .toSeconds(mClock.currentTimeMillis() - lastFreshDataMillis);
+            long remainingSeconds = MAX_DATA_AGE_SECONDS - dataAgeSeconds;
+            interval = Math.max(MIN_INTERVAL_SECONDS, Math.min(interval, remainingSeconds));
+        }
+
+        return interval;
+    }
+}
@@ -0,0 +1,79 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.firebase.jobdispatcher.JobParameters;
+import com.firebase.jobdispatcher.JobService;
+
+import com.jdemaagd.brilhodosol.data.AppPreferences;
+import com.jdemaagd.brilhodosol.data.WeatherContract;
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deletes archived weather that left the retention window set in preferences
+ * Runs on the sync thread so it never competes with a sync for the database
+ */
+public class ArchiveCompactionJobService extends JobService {
+
+    private static final String LOG_TAG = ArchiveCompactionJobService.class.getSimpleName();
+
+    private AtomicBoolean mJobStopped;
+
+    @Override
+    public boolean onStartJob(final JobParameters jobParameters) {
+        final AtomicBoolean jobStopped = new AtomicBoolean();
+        mJobStopped = jobStopped;
+
+        final Context context = getApplicationContext();
+        SyncExecutor.submit(() -> {
+            compactArchive(context);
+
+            // A stopped job has already been released by onStopJob
+            if (!jobStopped.get()) {
+                jobFinished(jobParameters, false);
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Compaction is a single short transaction that can't be interrupted,
+     * it is simply run again at the next window if the job was stopped
+     *
+     * @return whether the job should be retried
+     */
+    @Override
+    public boolean onStopJob(JobParameters jobParameters) {
+        if (mJobStopped != null) {
+            mJobStopped.set(true);
+        }
+
+        return true;
+    }
+
+    private static void compactArchive(Context context) {
+        Bundle extras = new Bundle();
+        extras.putInt(WeatherContract.EXTRA_RETENTION_DAYS,
+                AppPreferences.getHistoryRetentionDays(context));
+
+        try {
+            Bundle result = context.getContentResolver().call(
+                    WeatherEntry.CONTENT_URI,
+                    WeatherContract.METHOD_COMPACT_ARCHIVE,
+                    null,
+                    extras);
+
+            int rowsDeleted = result == null
+                    ? 0 : result.getInt(WeatherContract.EXTRA_ROWS_CHANGED);
+            Log.d(LOG_TAG, "Archive compacted, " + rowsDeleted + " rows deleted");
+        } catch (Exception e) {
+            Log.d(LOG_TAG, "Archive compaction failed");
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,49 +1,51 @@
 package com.jdemaagd.brilhodosol.sync;
 
 import android.content.Context;
-import android.os.AsyncTask;
+import android.os.CancellationSignal;
 
 import com.firebase.jobdispatcher.Job;
 import com.firebase.jobdispatcher.JobParameters;
 import com.firebase.jobdispatcher.JobService;
 import com.firebase.jobdispatcher.RetryStrategy;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class BrilhodoSolFirebaseJobService extends JobService {
 
-    private AsyncTask<Void, Void, Void> mFetchWeatherTask;
+    private CancellationSignal mCancellationSignal;
+    private AtomicBoolean mJobStopped;
 
     /**
      * Offload work to another thread of execution as soon as possible
      * <p>
      * Called by Job Dispatcher to tell us we should start our job
-     * This is run on app main thread, need to offload work to background thread
+     * This is run on app main thread, need to offload work to the dedicated sync thread
      *
      * @return whether there is more work remaining
      */
     @Override
     public boolean onStartJob(final JobParameters jobParameters) {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        final AtomicBoolean jobStopped = new AtomicBoolean();
+        mCancellationSignal = cancellationSignal;
+        mJobStopped = jobStopped;
 
-        mFetchWeatherTask = new AsyncTask<Void, Void, Void>(){
-            @Override
-            protected Void doInBackground(Void... voids) {
-                Context context = getApplicationContext();
-                BrilhodoSolSyncTask.syncWeather(context);
-
-                return null;
-            }
+        final Context context = getApplicationContext();
+        SyncExecutor.submit(() -> {
+            BrilhodoSolSyncTask.syncWeather(context, cancellationSignal);
 
-            @Override
-            protected void onPostExecute(Void aVoid) {
+            // A stopped job has already been released by onStopJob
+            if (!jobStopped.get()) {
                 jobFinished(jobParameters, false);
             }
-        };
+        });
 
-        mFetchWeatherTask.execute();
         return true;
     }
 
     /**
      * Called when scheduling engine has decided to interrupt execution of running job
+     * Cancellation aborts the in-flight socket off the main thread, so this returns at once
      *
      * @return whether the job should be retried
      * @see Job.Builder#setRetryStrategy(RetryStrategy)
@@ -51,10 +53,11 @@ public class BrilhodoSolFirebaseJobService extends JobService {
      */
     @Override
     public boolean onStopJob(JobParameters jobParameters) {
-        if (mFetchWeatherTask != null) {
-            mFetchWeatherTask.cancel(true);
+        if (mCancellationSignal != null) {
+            mJobStopped.set(true);
+            SyncExecutor.cancel(mCancellationSignal);
         }
 
         return true;
     }
-}
\ No newline at end of file
+}
@@ -1,48 +1,165 @@
 package com.jdemaagd.brilhodosol.sync;
 
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.text.format.DateUtils;
 import android.util.Log;
 
 import com.jdemaagd.brilhodosol.data.AppPreferences;
+import com.jdemaagd.brilhodosol.data.WeatherContract;
+import com.jdemaagd.brilhodosol.data.WeatherContract.LocationEntry;
 import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.utils.HttpValidatorCache;
 import com.jdemaagd.brilhodosol.utils.JsonUtils;
 import com.jdemaagd.brilhodosol.utils.NetworkUtils;
 import com.jdemaagd.brilhodosol.utils.NotificationUtils;
+import com.jdemaagd.brilhodosol.utils.WeatherHttpClient;
+import com.jdemaagd.brilhodosol.utils.WeatherHttpResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class BrilhodoSolSyncTask {
 
     private static final String LOG_TAG = BrilhodoSolSyncTask.class.getSimpleName();
 
+    /* Deadlines of the sync stages, a stage still running past its deadline is aborted */
+    private static final long FETCH_STAGE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long WRITE_STAGE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(20);
+
+    private static final SyncFlightCoordinator sFlights = new SyncFlightCoordinator();
+
+    /*
+     * Serializes forecast writes, a superseded flight checks for cancellation while holding it
+     * so it can never write its stale forecast after the flight that replaced it
+     */
+    private static final Object sWriteLock = new Object();
+
     /**
      * Performs network request to insert new weather info into ContentProvider
      * Notify user new weather has been loaded if enabled
      *
      * @param context Used to access utility methods and the ContentResolver
      */
-    synchronized public static void syncWeather(Context context) {
+    public static void syncWeather(Context context) {
+        syncWeather(context, new CancellationSignal());
+    }
+
+    /**
+     * Performs network request to insert new weather info into ContentProvider
+     * Notify user new weather has been loaded if enabled
+     * <p>
+     * Concurrent calls for the same location share a single sync, a call for another
+     *      location cancels the sync in flight since its location has been superseded
+     * Cancelling the signal detaches this caller, the sync itself is aborted
+     *      once no caller is waiting for it
+     *
+     * @param context            Used to access utility methods and the ContentResolver
+     * @param cancellationSignal Signal used to abandon the sync
+     */
+    public static void syncWeather(final Context context,
+                                   CancellationSignal cancellationSignal) {
+        final String locationSetting = AppPreferences.getPreferredWeatherLocation(context);
+        final URL weatherRequestUrl = NetworkUtils.getUrl(context);
+        if (weatherRequestUrl == null) {
+            Log.d(LOG_TAG, "syncWeather Failed. No valid URL for preferred location");
+            return;
+        }
+
+        sFlights.run(weatherRequestUrl.toString(), cancellationSignal,
+                flightSignal -> performSync(context, locationSetting, weatherRequestUrl,
+                        flightSignal));
+    }
 
+    /**
+     * Runs a single sync flight
+     * Cancelling the signal closes the in-flight socket and stops before the next stage,
+     *      nothing is written once cancellation has been observed
+     * Preferences written by the flight are batched and applied when it ends, however it ends
+     *
+     * @param context            Used to access utility methods and the ContentResolver
+     * @param locationSetting    Location the forecast is downloaded for, rows are stored
+     *                           under it even if the preference changes meanwhile
+     * @param weatherRequestUrl  URL of the forecast to download
+     * @param cancellationSignal Signal of the flight, also cancelled on stage deadlines
+     */
+    private static void performSync(Context context, String locationSetting,
+                                    URL weatherRequestUrl,
+                                    CancellationSignal cancellationSignal) {
+
+        // Coordinates and notification time written during the sync, in a single apply
+        AppPreferences.beginBatch();
         try {
-            URL weatherRequestUrl = NetworkUtils.getUrl(context);
+            ContentValues[] weatherValues;
+            String eTag;
+            String lastModified;
+            WeatherHttpClient httpClient = NetworkUtils.getHttpClient();
+
+            Map<String, String> requestHeaders = NetworkUtils.newRequestHeaders();
+            HttpValidatorCache.applyValidators(context, weatherRequestUrl, requestHeaders);
+
+            ScheduledFuture<?> fetchDeadline = SyncExecutor
+                    .startStageDeadline(cancellationSignal, FETCH_STAGE_TIMEOUT_MILLIS);
+            try {
+                cancellationSignal.throwIfCanceled();
 
-            String jsonWeatherResponse = NetworkUtils.getResponseFromHttpUrl(weatherRequestUrl);
+                // The signal aborts the request from the start, connect included
+                final WeatherHttpResponse response =
+                        httpClient.get(weatherRequestUrl, requestHeaders, cancellationSignal);
+                cancellationSignal.setOnCancelListener(response::abort);
+                try {
+                    cancellationSignal.throwIfCanceled();
 
-            ContentValues[] weatherValues = JsonUtils
-                    .getWeatherContentValuesFromJson(context, jsonWeatherResponse);
+                    if (response.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        Log.d(LOG_TAG, "Forecast not modified since last sync");
+                        BrilhodoSolSyncUtils.onSyncCompleted(context, SyncOutcome.unchanged());
+                        return;
+                    }
+                    // Only a 200 carries a forecast, anything else fails the sync unparsed
+                    if (response.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                        throw new IOException("Unexpected response: HTTP "
+                                + response.getResponseCode());
+                    }
 
-            if (weatherValues != null && weatherValues.length != 0) {
-                ContentResolver contentResolver = context.getContentResolver();
-                contentResolver.delete(
-                        WeatherEntry.CONTENT_URI,
-                        null,
-                        null);
-                contentResolver.bulkInsert(
-                        WeatherEntry.CONTENT_URI,
-                        weatherValues);
+                    eTag = HttpValidatorCache.getETag(response);
+                    lastModified = HttpValidatorCache.getLastModified(response);
+
+                    InputStream in = NetworkUtils.getResponseStream(response);
+                    weatherValues = JsonUtils.getWeatherContentValuesFromStream(context, in);
+                } finally {
+                    cancellationSignal.setOnCancelListener(null);
+                    response.close();
+                }
+            } finally {
+                fetchDeadline.cancel(false);
+            }
+
+            if (weatherValues == null || weatherValues.length == 0) {
+                BrilhodoSolSyncUtils.onSyncCompleted(context, SyncOutcome.failed());
+            } else {
+                SyncOutcome outcome;
+                ScheduledFuture<?> writeDeadline = SyncExecutor
+                        .startStageDeadline(cancellationSignal, WRITE_STAGE_TIMEOUT_MILLIS);
+                try {
+                    outcome = applyForecast(context.getContentResolver(), locationSetting,
+                            weatherValues, cancellationSignal);
+                } finally {
+                    writeDeadline.cancel(false);
+                }
+
+                HttpValidatorCache.saveValidators(context, weatherRequestUrl, eTag, lastModified);
+                BrilhodoSolSyncUtils.onSyncCompleted(context, outcome);
 
                 boolean notificationsEnabled = AppPreferences.areNotificationsEnabled(context);
 
@@ -59,9 +176,82 @@ public class BrilhodoSolSyncTask {
                     NotificationUtils.notifyUserOfNewWeather(context);
                 }
             }
+        } catch (OperationCanceledException e) {
+            Log.d(LOG_TAG, "syncWeather cancelled");
         } catch (Exception e) {
+            if (cancellationSignal.isCanceled()) {
+                // Aborting the socket surfaces as an IOException from the blocked read
+                Log.d(LOG_TAG, "syncWeather cancelled");
+                return;
+            }
             Log.d(LOG_TAG, "syncWeather Failed. Please try again later");
             e.printStackTrace();
+            BrilhodoSolSyncUtils.onSyncCompleted(context, SyncOutcome.failed());
+        } finally {
+            AppPreferences.endBatch();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes only forecast days that changed since last sync
+     * Stored rows are diffed against downloaded rows by date, then changed days are upserted
+     *      and days that left the window are deleted in one provider transaction
+     *      that notifies observers once
+     *
+     * @param contentResolver    Used to read and write WeatherProvider
+     * @param locationSetting    Location the forecast belongs to
+     * @param weatherValues      Downloaded forecast
+     * @param cancellationSignal Checked before anything is written
+     * @return Outcome of the sync, used to schedule the next one
+     */
+    private static SyncOutcome applyForecast(ContentResolver contentResolver,
+                                     String locationSetting,
+                                     ContentValues[] weatherValues,
+                                     CancellationSignal cancellationSignal) {
+        ContentValues location = new ContentValues();
+        location.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        long locationId = ContentUris.parseId(
+                contentResolver.insert(LocationEntry.CONTENT_URI, location));
+
+        ForecastDiff diff;
+        Cursor storedRows = contentResolver.query(
+                WeatherEntry.buildWeatherUriWithLocation(locationId),
+                ForecastDiff.STORED_FORECAST_PROJECTION,
+                null,
+                null,
+                null,
+                cancellationSignal);
+        try {
+            diff = ForecastDiff.compute(storedRows, weatherValues);
+        } finally {
+            if (storedRows != null) storedRows.close();
+        }
+
+        if (diff.getRowsTouched() == 0) {
+            Log.d(LOG_TAG, "Forecast unchanged, no rows touched");
+            return SyncOutcome.unchanged();
+        }
+
+        Bundle extras = new Bundle();
+        extras.putParcelableArray(WeatherContract.EXTRA_FORECAST_VALUES, diff.getChangedRows());
+        extras.putLongArray(WeatherContract.EXTRA_STALE_DATES, diff.getStaleDates());
+        extras.putLong(WeatherContract.EXTRA_LOCATION_ID, locationId);
+
+        Bundle result;
+        synchronized (sWriteLock) {
+            // Last point of no return, the replace itself is a single transaction
+            cancellationSignal.throwIfCanceled();
+
+            result = contentResolver.call(
+                    WeatherEntry.CONTENT_URI,
+                    WeatherContract.METHOD_REPLACE_FORECAST,
+                    null,
+                    extras);
+        }
+
+        int rowsChanged = result == null ? 0 : result.getInt(WeatherContract.EXTRA_ROWS_CHANGED);
+        Log.d(LOG_TAG, "Forecast synced, " + rowsChanged + " rows touched");
+
+        return SyncOutcome.updated(diff.isNearTermVolatile());
+    }
+}
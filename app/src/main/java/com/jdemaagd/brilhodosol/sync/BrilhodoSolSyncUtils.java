@@ -2,6 +2,7 @@ package com.jdemaagd.brilhodosol.sync;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.net.Uri;
 
@@ -15,25 +16,96 @@ import com.firebase.jobdispatcher.Job;
 import com.firebase.jobdispatcher.Lifetime;
 import com.firebase.jobdispatcher.Trigger;
 
+import com.jdemaagd.brilhodosol.data.WeatherContract;
 import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
 
 import java.util.concurrent.TimeUnit;
 
 public class BrilhodoSolSyncUtils {
 
-    private static final int SYNC_INTERVAL_HOURS = 3;
-    private static final int SYNC_INTERVAL_SECONDS = (int) TimeUnit.HOURS.toSeconds(SYNC_INTERVAL_HOURS);
-    private static final int SYNC_FLEXTIME_SECONDS = SYNC_INTERVAL_SECONDS / 3;
-
     private static boolean sInitialized;
 
     private static final String BRILHODOSOL_SYNC_TAG = "brilhodosol-sync";
+    private static final String ARCHIVE_COMPACTION_TAG = "brilhodosol-archive-compaction";
+
+    /* Archive compaction runs about once a day, while charging */
+    private static final int COMPACTION_INTERVAL_SECONDS = (int) TimeUnit.DAYS.toSeconds(1);
+    private static final int COMPACTION_FLEXTIME_SECONDS = (int) TimeUnit.HOURS.toSeconds(12);
+
+    /* Schedule state, kept apart from user preferences */
+    private static final String SCHEDULE_PREFS_NAME = "sync_schedule";
+    private static final String KEY_INTERVAL_SECONDS = "interval_seconds";
+    private static final String KEY_LAST_FRESH_MILLIS = "last_fresh_millis";
+
+    private static volatile SyncClock sClock = SyncClock.SYSTEM;
+    private static volatile SyncIntervalPolicy sIntervalPolicy =
+            new AdaptiveSyncIntervalPolicy(sClock);
+
+    /**
+     * Replaces policy deciding the interval between background syncs
+     *
+     * @param clock          Clock used to track data freshness
+     * @param intervalPolicy Policy to use from now on
+     */
+    public static void setIntervalPolicy(SyncClock clock, SyncIntervalPolicy intervalPolicy) {
+        sClock = clock;
+        sIntervalPolicy = intervalPolicy;
+    }
+
+    /**
+     * Called at the end of every sync to adapt the interval of the next one
+     * The recurring job is only rescheduled when the interval actually changes
+     *
+     * @param context Context used to access schedule state and FirebaseJobDispatcher
+     * @param outcome Outcome of the sync that just ran
+     */
+    synchronized static void onSyncCompleted(@NonNull final Context context, SyncOutcome outcome) {
+        SharedPreferences schedule = getSchedulePreferences(context);
+
+        long currentInterval = schedule.getLong(KEY_INTERVAL_SECONDS,
+                sIntervalPolicy.getInitialIntervalSeconds());
+        long lastFreshMillis = schedule.getLong(KEY_LAST_FRESH_MILLIS, 0);
+
+        if (outcome.getResult() != SyncOutcome.Result.FAILED) {
+            lastFreshMillis = sClock.currentTimeMillis();
+        }
+
+        long nextInterval = sIntervalPolicy
+                .getNextIntervalSeconds(outcome, currentInterval, lastFreshMillis);
+
+        schedule.edit()
+                .putLong(KEY_INTERVAL_SECONDS, nextInterval)
+                .putLong(KEY_LAST_FRESH_MILLIS, lastFreshMillis)
+                .apply();
+
+        if (nextInterval != currentInterval) {
+            scheduleFirebaseJobDispatcherSync(context, nextInterval);
+        }
+    }
 
     /**
      * Schedules repeating sync of weather data via FirebaseJobDispatcher
+     * Uses interval last picked by the interval policy
+     *
      * @param context Context used to create GooglePlayDriver that powers FirebaseJobDispatcher
      */
     static void scheduleFirebaseJobDispatcherSync(@NonNull final Context context) {
+        long intervalSeconds = getSchedulePreferences(context).getLong(KEY_INTERVAL_SECONDS,
+                sIntervalPolicy.getInitialIntervalSeconds());
+
+        scheduleFirebaseJobDispatcherSync(context, intervalSeconds);
+    }
+
+    /**
+     * Schedules repeating sync of weather data via FirebaseJobDispatcher
+     *
+     * @param context         Context used to create GooglePlayDriver
+     * @param intervalSeconds Interval between syncs, a third of it is given as flex time
+     */
+    private static void scheduleFirebaseJobDispatcherSync(@NonNull final Context context,
+                                                          long intervalSeconds) {
+        int syncIntervalSeconds = (int) intervalSeconds;
+        int syncFlextimeSeconds = syncIntervalSeconds / 3;
 
         Driver driver = new GooglePlayDriver(context);
         FirebaseJobDispatcher dispatcher = new FirebaseJobDispatcher(driver);
@@ -45,14 +117,38 @@ public class BrilhodoSolSyncUtils {
                 .setLifetime(Lifetime.FOREVER)
                 .setRecurring(true)
                 .setTrigger(Trigger.executionWindow(
-                        SYNC_INTERVAL_SECONDS,
-                        SYNC_INTERVAL_SECONDS + SYNC_FLEXTIME_SECONDS))
+                        syncIntervalSeconds,
+                        syncIntervalSeconds + syncFlextimeSeconds))
                 .setReplaceCurrent(true)
                 .build();
 
         dispatcher.schedule(syncJob);
     }
 
+    /**
+     * Schedules daily compaction of the weather archive via FirebaseJobDispatcher
+     *
+     * @param context Context used to create GooglePlayDriver
+     */
+    private static void scheduleArchiveCompaction(@NonNull final Context context) {
+        Driver driver = new GooglePlayDriver(context);
+        FirebaseJobDispatcher dispatcher = new FirebaseJobDispatcher(driver);
+
+        Job compactionJob = dispatcher.newJobBuilder()
+                .setService(ArchiveCompactionJobService.class)
+                .setTag(ARCHIVE_COMPACTION_TAG)
+                .setConstraints(Constraint.DEVICE_CHARGING)
+                .setLifetime(Lifetime.FOREVER)
+                .setRecurring(true)
+                .setTrigger(Trigger.executionWindow(
+                        COMPACTION_INTERVAL_SECONDS,
+                        COMPACTION_INTERVAL_SECONDS + COMPACTION_FLEXTIME_SECONDS))
+                .setReplaceCurrent(true)
+                .build();
+
+        dispatcher.schedule(compactionJob);
+    }
+
     /**
      * Creates periodic sync tasks and checks to see if an immediate sync is required
      *
@@ -66,31 +162,41 @@ public class BrilhodoSolSyncUtils {
         sInitialized = true;
 
         scheduleFirebaseJobDispatcherSync(context);
+        scheduleArchiveCompaction(context);
 
         Thread checkForEmpty = new Thread(() -> {
-            Uri forecastQueryUri = WeatherEntry.CONTENT_URI;
+            // A single row is enough to know the forecast isn't empty
+            Uri forecastQueryUri = WeatherEntry.CONTENT_URI.buildUpon()
+                    .appendQueryParameter(WeatherContract.QUERY_PARAMETER_LIMIT, "1")
+                    .build();
 
             String[] projectionColumns = {WeatherEntry._ID};
             String selectionStatement = WeatherEntry
                     .getSqlSelectForTodayOnwards();
+            String[] selectionArguments = WeatherEntry
+                    .getSqlSelectArgsForTodayOnwards();
 
             Cursor cursor = context.getContentResolver().query(
                     forecastQueryUri,
                     projectionColumns,
                     selectionStatement,
-                    null,
+                    selectionArguments,
                     null);
 
             if (null == cursor || cursor.getCount() == 0) {
                 startImmediateSync(context);
             }
 
-            cursor.close();
+            if (cursor != null) cursor.close();
         });
 
         checkForEmpty.start();
     }
 
+    private static SharedPreferences getSchedulePreferences(Context context) {
+        return context.getSharedPreferences(SCHEDULE_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
     /**
      * Sync immediately using an IntentService for asynchronous execution
      *
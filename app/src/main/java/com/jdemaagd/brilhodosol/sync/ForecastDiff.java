@@ -0,0 +1,163 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.utils.AppDateUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between forecast rows stored in WeatherProvider and a freshly downloaded forecast
+ * Rows are matched by {@link WeatherEntry#COLUMN_DATE}, so a sync only has to
+ *      upsert days whose values moved and delete days that fell out of the forecast window
+ */
+final class ForecastDiff {
+
+    /* Projection used to read stored rows, every column a downloaded row carries */
+    static final String[] STORED_FORECAST_PROJECTION = {
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+
+    private static final int INDEX_DATE = 0;
+    private static final int INDEX_WEATHER_ID = 1;
+    private static final int INDEX_MIN_TEMP = 2;
+    private static final int INDEX_MAX_TEMP = 3;
+    private static final int FIRST_REAL_COLUMN = 2;
+
+    /* Days, starting with the first downloaded day, whose changes count as near-term volatility */
+    private static final int NEAR_TERM_DAYS = 2;
+
+    /* Temperature change in °C that makes a near-term day volatile */
+    private static final double VOLATILE_TEMP_DELTA = 2.0;
+
+    private final ContentValues[] mChangedRows;
+    private final long[] mStaleDates;
+    private final boolean mNearTermVolatile;
+
+    private ForecastDiff(ContentValues[] changedRows, long[] staleDates,
+                         boolean nearTermVolatile) {
+        mChangedRows = changedRows;
+        mStaleDates = staleDates;
+        mNearTermVolatile = nearTermVolatile;
+    }
+
+    /**
+     * Compares stored rows with downloaded rows
+     *
+     * @param storedRows   Cursor over stored rows using {@link #STORED_FORECAST_PROJECTION},
+     *                     may be null if nothing is stored, not closed by this method
+     * @param incomingRows Downloaded rows, each one containing all of the projection columns
+     * @return The difference between both sets
+     */
+    static ForecastDiff compute(Cursor storedRows, ContentValues[] incomingRows) {
+        Map<Long, ContentValues> incomingByDate = new HashMap<>(incomingRows.length * 2);
+        long firstIncomingDate = Long.MAX_VALUE;
+        for (ContentValues incomingRow : incomingRows) {
+            long date = incomingRow.getAsLong(WeatherEntry.COLUMN_DATE);
+            incomingByDate.put(date, incomingRow);
+            firstIncomingDate = Math.min(firstIncomingDate, date);
+        }
+        long nearTermEnd = firstIncomingDate + NEAR_TERM_DAYS * AppDateUtils.DAY_IN_MILLIS;
+        boolean nearTermVolatile = false;
+
+        List<Long> staleDates = new ArrayList<>();
+        Map<Long, ContentValues> unchanged = new HashMap<>();
+
+        if (storedRows != null) {
+            while (storedRows.moveToNext()) {
+                long date = storedRows.getLong(INDEX_DATE);
+                ContentValues incomingRow = incomingByDate.get(date);
+
+                if (incomingRow == null) {
+                    staleDates.add(date);
+                } else if (isSameForecast(storedRows, incomingRow)) {
+                    unchanged.put(date, incomingRow);
+                } else if (date < nearTermEnd && isSignificantChange(storedRows, incomingRow)) {
+                    nearTermVolatile = true;
+                }
+            }
+        }
+
+        List<ContentValues> changedRows = new ArrayList<>(incomingRows.length);
+        for (ContentValues incomingRow : incomingRows) {
+            if (!unchanged.containsKey(incomingRow.getAsLong(WeatherEntry.COLUMN_DATE))) {
+                changedRows.add(incomingRow);
+            }
+        }
+
+        long[] staleDateArray = new long[staleDates.size()];
+        for (int i = 0; i < staleDateArray.length; i++) {
+            staleDateArray[i] = staleDates.get(i);
+        }
+
+        return new ForecastDiff(changedRows.toArray(new ContentValues[0]), staleDateArray,
+                nearTermVolatile);
+    }
+
+    private static boolean isSignificantChange(Cursor storedRow, ContentValues incomingRow) {
+        Integer weatherId = incomingRow.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID);
+        Double minTemp = incomingRow.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP);
+        Double maxTemp = incomingRow.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP);
+        if (weatherId == null || minTemp == null || maxTemp == null) return true;
+
+        return weatherId != storedRow.getInt(INDEX_WEATHER_ID)
+                || Math.abs(minTemp - storedRow.getDouble(INDEX_MIN_TEMP)) >= VOLATILE_TEMP_DELTA
+                || Math.abs(maxTemp - storedRow.getDouble(INDEX_MAX_TEMP)) >= VOLATILE_TEMP_DELTA;
+    }
+
+    private static boolean isSameForecast(Cursor storedRow, ContentValues incomingRow) {
+        Integer weatherId = incomingRow.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID);
+        if (weatherId == null || weatherId != storedRow.getInt(INDEX_WEATHER_ID)) {
+            return false;
+        }
+
+        for (int i = FIRST_REAL_COLUMN; i < STORED_FORECAST_PROJECTION.length; i++) {
+            Double value = incomingRow.getAsDouble(STORED_FORECAST_PROJECTION[i]);
+            if (value == null || Double.compare(value, storedRow.getDouble(i)) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Downloaded rows that are new or differ from the stored row of the same date
+     */
+    ContentValues[] getChangedRows() {
+        return mChangedRows;
+    }
+
+    /**
+     * @return Dates of stored rows that are no longer part of the downloaded forecast
+     */
+    long[] getStaleDates() {
+        return mStaleDates;
+    }
+
+    /**
+     * @return true if the weather or temperatures of the next days moved significantly
+     */
+    boolean isNearTermVolatile() {
+        return mNearTermVolatile;
+    }
+
+    /**
+     * @return Number of rows a sync has to write or delete, 0 if nothing changed
+     */
+    int getRowsTouched() {
+        return mChangedRows.length + mStaleDates.length;
+    }
+}
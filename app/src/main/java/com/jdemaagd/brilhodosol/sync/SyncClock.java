@@ -0,0 +1,14 @@
+package com.jdemaagd.brilhodosol.sync;
+
+/**
+ * Source of wall clock time for sync scheduling, injected so policies can be tested
+ */
+public interface SyncClock {
+
+    SyncClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return Current time in milliseconds since the epoch
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,76 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import android.os.CancellationSignal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated executor for weather syncs
+ * Sync work never queues behind unrelated AsyncTasks on the shared serial executor
+ * A watchdog thread enforces per-stage deadlines and delivers cancellations,
+ *      so aborting an in-flight socket never happens on the main thread
+ */
+public final class SyncExecutor {
+
+    private static final ExecutorService sSyncExecutor =
+            Executors.newSingleThreadExecutor(new NamedThreadFactory("brilhodosol-sync"));
+
+    private static final ScheduledExecutorService sWatchdog =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("brilhodosol-sync-watchdog"));
+
+    /**
+     * Runs a sync on the dedicated sync thread
+     *
+     * @param syncTask Work to run
+     * @return Future of the work
+     */
+    public static Future<?> submit(Runnable syncTask) {
+        return sSyncExecutor.submit(syncTask);
+    }
+
+    /**
+     * Cancels a sync from any thread and returns immediately
+     * Cancel listeners (i.e. aborting the in-flight socket) run on the watchdog thread
+     *
+     * @param cancellationSignal Signal of the sync to cancel
+     */
+    public static void cancel(final CancellationSignal cancellationSignal) {
+        sWatchdog.execute(cancellationSignal::cancel);
+    }
+
+    /**
+     * Starts the deadline of a sync stage
+     * If the stage is still running once the deadline passes, the signal is cancelled
+     *
+     * @param cancellationSignal Signal of the sync the stage belongs to
+     * @param timeoutMillis      Time the stage may take
+     * @return Handle the caller must cancel once the stage completed in time
+     */
+    static ScheduledFuture<?> startStageDeadline(final CancellationSignal cancellationSignal,
+                                                 long timeoutMillis) {
+        return sWatchdog.schedule(cancellationSignal::cancel, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String mName;
+
+        NamedThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, mName);
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
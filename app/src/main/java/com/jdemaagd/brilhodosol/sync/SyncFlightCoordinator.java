@@ -0,0 +1,123 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import android.os.CancellationSignal;
+
+/**
+ * Coalesces concurrent syncs into a single flight per request key (the forecast URL)
+ * <p>
+ * The first caller runs the sync, callers arriving for the same key while it is in flight
+ *      wait for it instead of downloading the same forecast again
+ * A caller for a different key supersedes the running flight, which is cancelled
+ *      since the location it fetches for is no longer wanted
+ * A flight is also cancelled once every attached caller has cancelled
+ */
+final class SyncFlightCoordinator {
+
+    /**
+     * Work run once per flight
+     */
+    interface FlightTask {
+        /**
+         * @param flightSignal Cancelled when the flight is superseded or abandoned by all callers
+         */
+        void run(CancellationSignal flightSignal);
+    }
+
+    private Flight mCurrentFlight;
+
+    /**
+     * Runs task, or waits for the in-flight run with the same key
+     * Returns once the flight completed or the caller cancelled
+     *
+     * @param key          Identifies the requested data, i.e. the request URL
+     * @param callerSignal Cancels this caller's interest in the flight
+     * @param task         Work to run if a new flight is started
+     */
+    void run(String key, CancellationSignal callerSignal, FlightTask task) {
+        final Flight flight;
+        Flight supersededFlight = null;
+        boolean leader;
+
+        synchronized (this) {
+            if (mCurrentFlight != null && mCurrentFlight.mKey.equals(key)
+                    && !mCurrentFlight.mSignal.isCanceled()) {
+                flight = mCurrentFlight;
+                leader = false;
+            } else {
+                supersededFlight = mCurrentFlight;
+                flight = new Flight(key);
+                mCurrentFlight = flight;
+                leader = true;
+            }
+            flight.attach();
+        }
+
+        if (supersededFlight != null) {
+            supersededFlight.mSignal.cancel();
+        }
+
+        callerSignal.setOnCancelListener(flight::detach);
+        try {
+            if (leader) {
+                try {
+                    task.run(flight.mSignal);
+                } finally {
+                    synchronized (this) {
+                        if (mCurrentFlight == flight) mCurrentFlight = null;
+                    }
+                    flight.finish();
+                }
+            } else {
+                flight.await(callerSignal);
+            }
+        } finally {
+            callerSignal.setOnCancelListener(null);
+        }
+    }
+
+    private static final class Flight {
+
+        private final String mKey;
+        private final CancellationSignal mSignal = new CancellationSignal();
+
+        private int mAttachedCallers;
+        private boolean mFinished;
+
+        Flight(String key) {
+            mKey = key;
+        }
+
+        synchronized void attach() {
+            mAttachedCallers++;
+        }
+
+        void detach() {
+            boolean abandoned;
+            synchronized (this) {
+                mAttachedCallers--;
+                abandoned = mAttachedCallers == 0 && !mFinished;
+                notifyAll();
+            }
+
+            if (abandoned) {
+                mSignal.cancel();
+            }
+        }
+
+        synchronized void finish() {
+            mFinished = true;
+            notifyAll();
+        }
+
+        synchronized void await(CancellationSignal callerSignal) {
+            while (!mFinished && !callerSignal.isCanceled()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.jdemaagd.brilhodosol.sync;
+
+/**
+ * Decides how long to wait before the next background sync
+ */
+public interface SyncIntervalPolicy {
+
+    /**
+     * @return Interval used when no sync history is available
+     */
+    long getInitialIntervalSeconds();
+
+    /**
+     * Picks interval until next sync from the outcome of the sync that just ran
+     *
+     * @param outcome                 Outcome of the sync that just ran
+     * @param currentIntervalSeconds  Interval the sync was scheduled with
+     * @param lastFreshDataMillis     When stored data was last confirmed current
+     *                                (updated or unchanged), 0 if never
+     * @return Interval in seconds until the next sync
+     */
+    long getNextIntervalSeconds(SyncOutcome outcome, long currentIntervalSeconds,
+                                long lastFreshDataMillis);
+}
@@ -0,0 +1,48 @@
+package com.jdemaagd.brilhodosol.sync;
+
+/**
+ * Result of a single sync, fed to a {@link SyncIntervalPolicy} to pick the next interval
+ */
+public final class SyncOutcome {
+
+    public enum Result {
+        /* Server answered 304 or the downloaded forecast matched the stored one */
+        UNCHANGED,
+        /* Some forecast days were written */
+        UPDATED,
+        /* Sync did not complete, stored data was not refreshed */
+        FAILED
+    }
+
+    private final Result mResult;
+    private final boolean mNearTermVolatile;
+
+    private SyncOutcome(Result result, boolean nearTermVolatile) {
+        mResult = result;
+        mNearTermVolatile = nearTermVolatile;
+    }
+
+    public static SyncOutcome unchanged() {
+        return new SyncOutcome(Result.UNCHANGED, false);
+    }
+
+    /**
+     * @param nearTermVolatile true if the forecast of the next days moved significantly
+     * @return Outcome of a sync that wrote new data
+     */
+    public static SyncOutcome updated(boolean nearTermVolatile) {
+        return new SyncOutcome(Result.UPDATED, nearTermVolatile);
+    }
+
+    public static SyncOutcome failed() {
+        return new SyncOutcome(Result.FAILED, false);
+    }
+
+    public Result getResult() {
+        return mResult;
+    }
+
+    public boolean isNearTermVolatile() {
+        return mNearTermVolatile;
+    }
+}
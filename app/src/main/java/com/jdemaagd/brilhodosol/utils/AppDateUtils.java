@@ -1,11 +1,7 @@
 package com.jdemaagd.brilhodosol.utils;
 
 import android.content.Context;
-import android.text.format.DateUtils;
 
-import com.jdemaagd.brilhodosol.R;
-
-import java.text.SimpleDateFormat;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
@@ -16,6 +12,9 @@ public final class AppDateUtils {
     public static final long HOUR_IN_MILLIS = MINUTE_IN_MILLIS * 60;
     public static final long DAY_IN_MILLIS = HOUR_IN_MILLIS * 24;
 
+    /* Labels of getFriendlyDateString, memoized for the current day, locale and time zone */
+    private static final DateLabelCache sDateLabels = new DateLabelCache();
+
     /**
      * Returns number of days since epoch (January 01, 1970, 12:00 Midnight UTC)
      *
@@ -28,6 +27,17 @@ public final class AppDateUtils {
         return (date + gmtOffset) / DAY_IN_MILLIS;
     }
 
+    /**
+     * Returns day number (days since epoch) of a normalized UTC date
+     * Used as key of the weather table, which stores days rather than milliseconds
+     *
+     * @param normalizedUtcDate A date normalized with {@link #normalizeDate(long)}
+     * @return The number of days since the epoch
+     */
+    public static long getDayNumberForNormalizedDate(long normalizedUtcDate) {
+        return normalizedUtcDate / DAY_IN_MILLIS;
+    }
+
     /**
      * Convert database representation of date into something to display to users
      * <p/>
@@ -42,42 +52,7 @@ public final class AppDateUtils {
      * @return A user-friendly representation of the date
      */
     public static String getFriendlyDateString(Context context, long dateInMillis, boolean showFullDate) {
-
-        long localDate = getLocalDateFromUTC(dateInMillis);
-        long dayNumber = getDayNumber(localDate);
-        long currentDayNumber = getDayNumber(System.currentTimeMillis());
-
-        if (dayNumber == currentDayNumber || showFullDate) {
-            // current day format: "Today, June 24"
-            String dayName = getDayName(context, localDate);
-            String readableDate = getReadableDateString(context, localDate);
-            if (dayNumber - currentDayNumber < 2) {
-                /*
-                 * Since there is no localized format that returns "Today" or "Tomorrow" in the API
-                 * levels we have to support, we take the name of the day (from SimpleDateFormat)
-                 * and use it to replace the date from DateUtils. This isn't guaranteed to work,
-                 * but our testing so far has been conclusively positive.
-                 *
-                 * For information on a simpler API to use (on API > 18), please check out the
-                 * documentation on DateFormat#getBestDateTimePattern(Locale, String)
-                 * https://developer.android.com/reference/android/text/format/DateFormat.html#getBestDateTimePattern
-                 */
-                String localizedDayName = new SimpleDateFormat("EEEE").format(localDate);
-                return readableDate.replace(localizedDayName, dayName);
-            } else {
-                return readableDate;
-            }
-        } else if (dayNumber < currentDayNumber + 7) {
-            // date is less than a week format: name of day (i.e. "Tuesday")
-            return getDayName(context, localDate);
-        } else {
-            int flags = DateUtils.FORMAT_SHOW_DATE
-                    | DateUtils.FORMAT_NO_YEAR
-                    | DateUtils.FORMAT_ABBREV_ALL
-                    | DateUtils.FORMAT_SHOW_WEEKDAY;
-
-            return DateUtils.formatDateTime(context, localDate, flags);
-        }
+        return sDateLabels.getLabel(context, dateInMillis, showFullDate);
     }
 
     /**
@@ -189,50 +164,4 @@ public final class AppDateUtils {
     public static long normalizeDate(long date) {
         return date / DAY_IN_MILLIS * DAY_IN_MILLIS;
     }
-
-    /**
-     * Given a day, returns just the name to use for that day
-     * i.e. "today", "tomorrow", "Wednesday"
-     *
-     * @param context      Context to use for resource localization
-     * @param dateInMillis The date in milliseconds (local time)
-     * @return the string day of the week
-     */
-    private static String getDayName(Context context, long dateInMillis) {
-        /*
-         * If the date is today, return the localized version of "Today" instead of the actual
-         * day name.
-         */
-        long dayNumber = getDayNumber(dateInMillis);
-        long currentDayNumber = getDayNumber(System.currentTimeMillis());
-        if (dayNumber == currentDayNumber) {
-            return context.getString(R.string.today);
-        } else if (dayNumber == currentDayNumber + 1) {
-            return context.getString(R.string.tomorrow);
-        } else {
-            /*
-             * Otherwise, if the day is not today, the format is just the day of the week
-             * (i.e. "Wednesday")
-             */
-            SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE");
-
-            return dayFormat.format(dateInMillis);
-        }
-    }
-
-    /**
-     * Returns a date string in the format specified, which shows a date, without a year,
-     * abbreviated, showing the full weekday
-     *
-     * @param context      Used by DateUtils to formate the date in the current locale
-     * @param timeInMillis Time in milliseconds since the epoch (local time)
-     * @return The formatted date string
-     */
-    private static String getReadableDateString(Context context, long timeInMillis) {
-        int flags = DateUtils.FORMAT_SHOW_DATE
-                | DateUtils.FORMAT_NO_YEAR
-                | DateUtils.FORMAT_SHOW_WEEKDAY;
-
-        return DateUtils.formatDateTime(context, timeInMillis, flags);
-    }
 }
@@ -0,0 +1,209 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.text.format.DateUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.jdemaagd.brilhodosol.R;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Memoized friendly date labels, see {@link AppDateUtils#getFriendlyDateString}
+ * <p>
+ * Labels are relative to today ("Today", "Tomorrow", day names), so they are cached per
+ *      (date, style) for the current day, locale and time zone only. The time zone, calendar
+ *      and day name table are resolved once for all of them.
+ *      Everything is dropped when the local day ends, when the default locale changes,
+ *      or when the system broadcasts a time zone, time, date or locale change.
+ * <p>
+ * Thread safe, labels are built by the list presenter thread as well as the main thread
+ */
+final class DateLabelCache {
+
+    /* Labels of a day rarely exceed a few weeks of forecast and history */
+    private static final int MAX_LABELS = 128;
+
+    private final Map<Long, String> mLabels = new HashMap<>();
+    private final Map<Long, String> mFullLabels = new HashMap<>();
+
+    private Locale mLocale;
+    private TimeZone mTimeZone;
+    private Calendar mCalendar;
+
+    /* Day names indexed by Calendar.DAY_OF_WEEK, as formatted by SimpleDateFormat("EEEE") */
+    private String[] mWeekdays;
+
+    private long mTodayDayNumber;
+    private long mTodayStartMillis;
+    private long mTomorrowStartMillis;
+
+    private boolean mReceiverRegistered;
+
+    private final BroadcastReceiver mInvalidationReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    /**
+     * Returns the friendly label of a date, building it on a miss
+     *
+     * @param context      Context to use for resource localization
+     * @param dateInMillis The date in milliseconds (UTC)
+     * @param showFullDate Used to show a fuller-version of the date
+     * @return A user-friendly representation of the date
+     */
+    String getLabel(Context context, long dateInMillis, boolean showFullDate) {
+        return getLabel(context, dateInMillis, showFullDate, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the friendly label of a date relative to a given current time
+     *
+     * @param context      Context to use for resource localization
+     * @param dateInMillis The date in milliseconds (UTC)
+     * @param showFullDate Used to show a fuller-version of the date
+     * @param nowMillis    Current time, labels are rebuilt once it leaves the cached day
+     * @return A user-friendly representation of the date
+     */
+    @VisibleForTesting
+    synchronized String getLabel(Context context, long dateInMillis, boolean showFullDate,
+                                 long nowMillis) {
+        if (!mReceiverRegistered) {
+            registerInvalidationReceiver(context);
+        }
+        refreshIfStale(nowMillis);
+
+        Map<Long, String> labels = showFullDate ? mFullLabels : mLabels;
+        String label = labels.get(dateInMillis);
+        if (label == null) {
+            if (labels.size() >= MAX_LABELS) labels.clear();
+
+            label = buildLabel(context, dateInMillis, showFullDate);
+            labels.put(dateInMillis, label);
+        }
+
+        return label;
+    }
+
+    /**
+     * Drops every label, the next lookup resolves time zone, locale and today again
+     */
+    synchronized void invalidate() {
+        mTimeZone = null;
+    }
+
+    private void registerInvalidationReceiver(Context context) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+
+        // Registered for the lifetime of the process, the application context never leaks
+        context.getApplicationContext().registerReceiver(mInvalidationReceiver, filter);
+        mReceiverRegistered = true;
+    }
+
+    private void refreshIfStale(long nowMillis) {
+        Locale locale = Locale.getDefault();
+        if (mTimeZone != null && locale.equals(mLocale)
+                && nowMillis >= mTodayStartMillis && nowMillis < mTomorrowStartMillis) {
+            return;
+        }
+
+        mLocale = locale;
+        mTimeZone = TimeZone.getDefault();
+        mCalendar = Calendar.getInstance(mTimeZone, locale);
+        mWeekdays = DateFormatSymbols.getInstance(locale).getWeekdays();
+
+        mTodayDayNumber = (nowMillis + mTimeZone.getOffset(nowMillis)) / AppDateUtils.DAY_IN_MILLIS;
+
+        mCalendar.setTimeInMillis(nowMillis);
+        mCalendar.set(Calendar.HOUR_OF_DAY, 0);
+        mCalendar.set(Calendar.MINUTE, 0);
+        mCalendar.set(Calendar.SECOND, 0);
+        mCalendar.set(Calendar.MILLISECOND, 0);
+        mTodayStartMillis = mCalendar.getTimeInMillis();
+        mCalendar.add(Calendar.DAY_OF_MONTH, 1);
+        mTomorrowStartMillis = mCalendar.getTimeInMillis();
+
+        mLabels.clear();
+        mFullLabels.clear();
+    }
+
+    /*
+     * For today: "Today, June 8"
+     * For tomorrow:  "Tomorrow"
+     * For the next 5 days: "Wednesday" (just the day name)
+     * For all days after that: "Mon, Jun 8" (Mon, 8 Jun in UK, for example)
+     */
+    private String buildLabel(Context context, long dateInMillis, boolean showFullDate) {
+        long localDate = dateInMillis - mTimeZone.getOffset(dateInMillis);
+        long dayNumber = (localDate + mTimeZone.getOffset(localDate)) / AppDateUtils.DAY_IN_MILLIS;
+
+        if (dayNumber == mTodayDayNumber || showFullDate) {
+            // current day format: "Today, June 24"
+            int flags = DateUtils.FORMAT_SHOW_DATE
+                    | DateUtils.FORMAT_NO_YEAR
+                    | DateUtils.FORMAT_SHOW_WEEKDAY;
+            String readableDate = DateUtils.formatDateTime(context, localDate, flags);
+
+            if (dayNumber - mTodayDayNumber < 2) {
+                /*
+                 * Since there is no localized format that returns "Today" or "Tomorrow" in the API
+                 * levels we have to support, we take the name of the day and use it to replace
+                 * the date from DateUtils. The replacement is skipped when the day name is
+                 * already the weekday, i.e. for past days.
+                 */
+                String localizedDayName = getWeekdayName(localDate);
+                String dayName = getDayName(context, localDate, dayNumber);
+
+                return dayName.equals(localizedDayName)
+                        ? readableDate : readableDate.replace(localizedDayName, dayName);
+            } else {
+                return readableDate;
+            }
+        } else if (dayNumber < mTodayDayNumber + 7) {
+            // date is less than a week format: name of day (i.e. "Tuesday")
+            return getDayName(context, localDate, dayNumber);
+        } else {
+            int flags = DateUtils.FORMAT_SHOW_DATE
+                    | DateUtils.FORMAT_NO_YEAR
+                    | DateUtils.FORMAT_ABBREV_ALL
+                    | DateUtils.FORMAT_SHOW_WEEKDAY;
+
+            return DateUtils.formatDateTime(context, localDate, flags);
+        }
+    }
+
+    /*
+     * "Today", "Tomorrow" or the name of the day of the week (i.e. "Wednesday")
+     */
+    private String getDayName(Context context, long localDate, long dayNumber) {
+        if (dayNumber == mTodayDayNumber) {
+            return context.getString(R.string.today);
+        } else if (dayNumber == mTodayDayNumber + 1) {
+            return context.getString(R.string.tomorrow);
+        } else {
+            return getWeekdayName(localDate);
+        }
+    }
+
+    private String getWeekdayName(long localDate) {
+        mCalendar.setTimeInMillis(localDate);
+
+        return mWeekdays[mCalendar.get(Calendar.DAY_OF_WEEK)];
+    }
+}
@@ -0,0 +1,109 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Persists HTTP cache validators (ETag / Last-Modified) of the last successful sync
+ * Lets the next sync ask the server whether anything changed
+ *      and stop on 304 Not Modified without downloading or touching the database
+ * <p>
+ * Only one entry is kept, keyed by request URL, because only the preferred location is synced
+ *      Rows of other locations stay in the weather table but are not refreshed, so after
+ *      a location change the URL no longer matches and the next sync downloads in full
+ */
+public final class HttpValidatorCache {
+
+    private static final String PREFS_NAME = "http_validators";
+
+    private static final String KEY_URL = "url";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "last_modified";
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+
+    /**
+     * Adds conditional request headers if validators are stored for this URL
+     *
+     * @param context        Used to access SharedPreferences
+     * @param url            Request URL, as returned by NetworkUtils.getUrl
+     * @param requestHeaders Headers of the request, validators are added to them
+     */
+    public static void applyValidators(Context context, URL url, Map<String, String> requestHeaders) {
+        SharedPreferences prefs = getPreferences(context);
+        if (!url.toString().equals(prefs.getString(KEY_URL, null))) return;
+
+        String eTag = prefs.getString(KEY_ETAG, null);
+        if (eTag != null) {
+            requestHeaders.put(HEADER_IF_NONE_MATCH, eTag);
+        }
+
+        String lastModified = prefs.getString(KEY_LAST_MODIFIED, null);
+        if (lastModified != null) {
+            requestHeaders.put(HEADER_IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    /**
+     * Clears stored validators, next sync then downloads the full forecast
+     * Called whenever the cached forecast in the database is lost
+     *
+     * @param context Used to access SharedPreferences
+     */
+    public static void clear(Context context) {
+        getPreferences(context).edit().clear().apply();
+    }
+
+    /**
+     * Returns ETag response header
+     *
+     * @param response Response received from the weather server
+     * @return ETag value, null if server did not send one
+     */
+    public static String getETag(WeatherHttpResponse response) {
+        return response.getHeader(HEADER_ETAG);
+    }
+
+    /**
+     * Returns Last-Modified response header
+     *
+     * @param response Response received from the weather server
+     * @return Last-Modified value, null if server did not send one
+     */
+    public static String getLastModified(WeatherHttpResponse response) {
+        return response.getHeader(HEADER_LAST_MODIFIED);
+    }
+
+    /**
+     * Stores validators of a response once its data has been written to the database
+     * Replaces the entry of any previously synced URL
+     *
+     * @param context      Used to access SharedPreferences
+     * @param url          Request URL the validators belong to
+     * @param eTag         ETag response header, may be null
+     * @param lastModified Last-Modified response header, may be null
+     */
+    public static void saveValidators(Context context, URL url, String eTag, String lastModified) {
+        SharedPreferences.Editor editor = getPreferences(context).edit();
+
+        if (eTag == null && lastModified == null) {
+            editor.clear();
+        } else {
+            editor.putString(KEY_URL, url.toString());
+            editor.putString(KEY_ETAG, eTag);
+            editor.putString(KEY_LAST_MODIFIED, lastModified);
+        }
+
+        editor.apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
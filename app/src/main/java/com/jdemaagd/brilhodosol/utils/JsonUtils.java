@@ -2,16 +2,20 @@ package com.jdemaagd.brilhodosol.utils;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
 import com.jdemaagd.brilhodosol.data.AppPreferences;
 import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class JsonUtils {
 
@@ -34,88 +38,195 @@ public final class JsonUtils {
     private static final String OWM_WIND_DIRECTION = "deg";
     private static final String OWM_WINDSPEED = "speed";
 
+    // Columns read from a single "list" element, the date column is derived from its position
+    private static final int DAY_FORECAST_COLUMN_COUNT = 7;
+
     /**
-     * Parse JSON from web response and returns array of Strings of weather over some days
-     * @param forecastJsonStr JSON response from server
-     * @return Array of Strings describing weather data
-     * @throws JSONException If JSON data cannot be properly parsed
+     * Parse JSON from web response into one row of weather data per forecast day
+     * Pulls tokens straight off the response stream and emits one row per forecast day
+     *      as soon as that day has been read, neither the response String
+     *      nor a JSONObject tree of the whole document is ever built
+     *
+     * @param context Used to store the coordinates of the city in preferences
+     * @param forecastJsonStream JSON response stream from server, not closed by this method
+     * @return Array of ContentValues describing weather data, null if server reported an error
+     * @throws IOException If the stream cannot be read, the JSON is malformed
+     *                     or the list or the city coordinates are missing
      */
-    public static ContentValues[] getWeatherContentValuesFromJson(Context context, String forecastJsonStr)
-            throws JSONException {
+    public static ContentValues[] getWeatherContentValuesFromStream(Context context,
+                                                                   InputStream forecastJsonStream)
+            throws IOException {
 
-        JSONObject forecastJson = new JSONObject(forecastJsonStr);
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(forecastJsonStream, StandardCharsets.UTF_8));
 
-        if (forecastJson.has(OWM_MESSAGE_CODE)) {
-            int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
+        long normalizedUtcStartDay = AppDateUtils.getNormalizedUtcDateForToday();
 
-            switch (errorCode) {
-                case HttpURLConnection.HTTP_OK:
+        List<ContentValues> weatherContentValues = null;
+        boolean hasLatitude = false;
+        boolean hasLongitude = false;
+        double cityLatitude = 0;
+        double cityLongitude = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case OWM_MESSAGE_CODE:
+                    int errorCode = reader.nextInt();
+
+                    switch (errorCode) {
+                        case HttpURLConnection.HTTP_OK:
+                            break;
+                        case HttpURLConnection.HTTP_NOT_FOUND:
+                            // Log.d(LOG_TAG, "Please verify endpoint.");
+                            return null;
+                        default:
+                            Log.d(LOG_TAG, "Network error.");
+                            return null;
+                    }
+                    break;
+                case OWM_LIST:
+                    weatherContentValues = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        long dateTimeMillis = normalizedUtcStartDay
+                                + AppDateUtils.DAY_IN_MILLIS * weatherContentValues.size();
+
+                        ContentValues weatherValues = readDayForecast(reader);
+                        weatherValues.put(WeatherEntry.COLUMN_DATE, dateTimeMillis);
+
+                        Log.v(LOG_TAG, "Send to Content Resolver: " + weatherValues);
+                        weatherContentValues.add(weatherValues);
+                    }
+                    reader.endArray();
+                    break;
+                case OWM_CITY:
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (OWM_COORD.equals(reader.nextName())) {
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                switch (reader.nextName()) {
+                                    case OWM_LATITUDE:
+                                        cityLatitude = reader.nextDouble();
+                                        hasLatitude = true;
+                                        break;
+                                    case OWM_LONGITUDE:
+                                        cityLongitude = reader.nextDouble();
+                                        hasLongitude = true;
+                                        break;
+                                    default:
+                                        reader.skipValue();
+                                }
+                            }
+                            reader.endObject();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
                     break;
-                case HttpURLConnection.HTTP_NOT_FOUND:
-                    // Log.d(LOG_TAG, "Please verify endpoint.");
-                    return null;
                 default:
-                    Log.d(LOG_TAG, "Network error.");
-                    return null;
+                    reader.skipValue();
             }
         }
+        reader.endObject();
 
-        JSONArray jsonWeatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-        JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-
-        JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-        double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-        double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
+        // "city" and "list" are accepted in either order (the daily API sends "city" first),
+        // both are required and coordinates are saved once the whole object has been read
+        if (weatherContentValues == null) {
+            throw new IOException("Forecast list missing");
+        }
+        if (!hasLatitude || !hasLongitude) {
+            throw new IOException("City coordinates missing");
+        }
         AppPreferences.setLocationDetails(context, cityLatitude, cityLongitude);
 
-        ContentValues[] weatherContentValues = new ContentValues[jsonWeatherArray.length()];
+        return weatherContentValues.toArray(new ContentValues[0]);
+    }
 
-        long normalizedUtcStartDay = AppDateUtils.getNormalizedUtcDateForToday();
+    /**
+     * Reads a single element of the OWM "list" array
+     * Only the fields stored in the weather table are kept, everything else is skipped
+     *
+     * @param reader JsonReader positioned at the start of a day forecast object
+     * @return ContentValues for the day, without the date column
+     * @throws IOException If the stream cannot be read or the JSON is malformed
+     */
+    private static ContentValues readDayForecast(JsonReader reader) throws IOException {
+        ContentValues weatherValues = new ContentValues();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case OWM_MAIN:
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case OWM_MAX:
+                                weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, reader.nextDouble());
+                                break;
+                            case OWM_MIN:
+                                weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, reader.nextDouble());
+                                break;
+                            case OWM_HUMIDITY:
+                                weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, reader.nextInt());
+                                break;
+                            case OWM_PRESSURE:
+                                weatherValues.put(WeatherEntry.COLUMN_PRESSURE, reader.nextDouble());
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case OWM_WIND:
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case OWM_WINDSPEED:
+                                weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, reader.nextDouble());
+                                break;
+                            case OWM_WIND_DIRECTION:
+                                weatherValues.put(WeatherEntry.COLUMN_DEGREES, reader.nextDouble());
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case OWM_WEATHER:
+                    // Only the first (primary) condition is stored
+                    reader.beginArray();
+                    if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if (OWM_WEATHER_ID.equals(reader.nextName())) {
+                                weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, reader.nextInt());
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        for (int i = 0; i < jsonWeatherArray.length(); i++) {
-
-            long dateTimeMillis;
-            double high;
-            int humidity;
-            double low;
-            double pressure;
-            int weatherId;
-            double windDirection;
-            double windSpeed;
-
-            dateTimeMillis = normalizedUtcStartDay + AppDateUtils.DAY_IN_MILLIS * i;
-
-            JSONObject dayForecast = jsonWeatherArray.getJSONObject(i);
-            JSONObject mainObject = dayForecast.getJSONObject(OWM_MAIN);
-            JSONObject windObject = dayForecast.getJSONObject(OWM_WIND);
-            JSONObject weatherObject =
-                    dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-
-            weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-            high = mainObject.getDouble(OWM_MAX);
-            humidity = mainObject.getInt(OWM_HUMIDITY);
-            low = mainObject.getDouble(OWM_MIN);
-            pressure = mainObject.getDouble(OWM_PRESSURE);
-            windDirection = windObject.getDouble(OWM_WIND_DIRECTION);
-            windSpeed = windObject.getDouble(OWM_WINDSPEED);
-
-            ContentValues weatherValues = new ContentValues();
-            weatherValues.put(WeatherEntry.COLUMN_DATE, dateTimeMillis);
-            weatherValues.put(WeatherEntry.COLUMN_DEGREES, windDirection);
-            weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, humidity);
-            weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, high);
-            weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, low);
-            weatherValues.put(WeatherEntry.COLUMN_PRESSURE, pressure);
-            weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-            weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-
-            Log.v(LOG_TAG, "Send to Content Resolver: " + weatherValues);
-            weatherContentValues[i] = weatherValues;
+        // Every stored column is required, a day missing one fails the whole response
+        if (weatherValues.size() != DAY_FORECAST_COLUMN_COUNT) {
+            throw new IOException("Incomplete day forecast: " + weatherValues);
         }
 
-        return weatherContentValues;
+        return weatherValues;
     }
 }
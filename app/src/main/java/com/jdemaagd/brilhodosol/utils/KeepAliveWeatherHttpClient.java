@@ -0,0 +1,133 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.os.CancellationSignal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * {@link WeatherHttpClient} backed by {@link HttpURLConnection}
+ * Connections are never disconnected, closing a response drains and closes its body instead
+ *      so the socket goes back to the platform connection pool and the next sync
+ *      skips DNS, TCP and TLS setup
+ * Every request carries connect and read timeouts so a stalled socket cannot block sync forever
+ *      and can be aborted from another thread before the connection is even established
+ */
+public final class KeepAliveWeatherHttpClient implements WeatherHttpClient {
+
+    // Bodies larger than this are not worth draining to keep the connection alive
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private final int mConnectTimeoutMillis;
+    private final int mReadTimeoutMillis;
+
+    /**
+     * @param connectTimeoutMillis Timeout for establishing the connection
+     * @param readTimeoutMillis    Timeout for each read from the socket
+     */
+    public KeepAliveWeatherHttpClient(int connectTimeoutMillis, int readTimeoutMillis) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public WeatherHttpResponse get(URL url, Map<String, String> requestHeaders,
+                                   CancellationSignal cancellationSignal) throws IOException {
+        final HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        urlConnection.setConnectTimeout(mConnectTimeoutMillis);
+        urlConnection.setReadTimeout(mReadTimeoutMillis);
+        urlConnection.setUseCaches(false);
+
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            urlConnection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        // Disconnecting aborts a connect or a read blocked on the socket, from any thread
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(urlConnection::disconnect);
+        }
+
+        int responseCode;
+        try {
+            if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                throw new IOException("Request cancelled");
+            }
+            // Forces the request and reads the status line and headers
+            responseCode = urlConnection.getResponseCode();
+        } catch (IOException e) {
+            if (cancellationSignal != null) cancellationSignal.setOnCancelListener(null);
+            urlConnection.disconnect();
+            throw e;
+        }
+
+        return new Response(urlConnection, responseCode);
+    }
+
+    private static final class Response implements WeatherHttpResponse {
+
+        private final HttpURLConnection mUrlConnection;
+        private final int mResponseCode;
+        private InputStream mBody;
+
+        Response(HttpURLConnection urlConnection, int responseCode) {
+            mUrlConnection = urlConnection;
+            mResponseCode = responseCode;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return mResponseCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mUrlConnection.getHeaderField(name);
+        }
+
+        @Override
+        public long getContentLength() {
+            return mUrlConnection.getContentLength();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (mBody == null) {
+                mBody = mResponseCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                        ? mUrlConnection.getErrorStream()
+                        : mUrlConnection.getInputStream();
+            }
+
+            return mBody;
+        }
+
+        @Override
+        public void abort() {
+            mUrlConnection.disconnect();
+        }
+
+        @Override
+        public void close() {
+            try {
+                InputStream body = getBody();
+                if (body == null) return;
+
+                // Connection can only be reused once its body has been fully consumed
+                byte[] scratch = new byte[1024];
+                int drained = 0;
+                int read;
+                while (drained < MAX_DRAIN_BYTES && (read = body.read(scratch)) != -1) {
+                    drained += read;
+                }
+                if (drained >= MAX_DRAIN_BYTES) {
+                    mUrlConnection.disconnect();
+                }
+                body.close();
+            } catch (IOException e) {
+                mUrlConnection.disconnect();
+            }
+        }
+    }
+}
@@ -7,12 +7,15 @@ import android.util.Log;
 import com.jdemaagd.brilhodosol.BuildConfig;
 import com.jdemaagd.brilhodosol.data.AppPreferences;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Scanner;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 public final class NetworkUtils {
 
@@ -34,6 +37,29 @@ public final class NetworkUtils {
     final static String API_PARAM = "appid";
     final static String API_KEY = BuildConfig.OWM_API_KEY;
 
+    /*
+     * A 14 day forecast is roughly 8 KB of JSON, anything beyond this cap is not a forecast
+     * and is rejected rather than buffered
+     */
+    private static final int MAX_RESPONSE_BYTES = 256 * 1024;
+
+    /*
+     * Bounds of the gzip input buffer, sized from Content-Length in between
+     * A compressed forecast is 1-2 KB, so it usually fits a single buffer
+     */
+    private static final int MIN_GZIP_BUFFER_BYTES = 512;
+    private static final int MAX_GZIP_BUFFER_BYTES = 4 * 1024;
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+    private static final int READ_TIMEOUT_MILLIS = 20 * 1000;
+
+    private static volatile WeatherHttpClient sHttpClient =
+            new KeepAliveWeatherHttpClient(CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS);
+
     /**
      * Build URL via location
      *
@@ -90,29 +116,71 @@ public final class NetworkUtils {
     }
 
     /**
-     * This method returns the entire result from the HTTP response
+     * Returns transport used for all requests to the weather server
      *
-     * @param url The URL to fetch the HTTP response from
-     * @return The contents of the HTTP response
-     * @throws IOException Related to network and stream reading
+     * @return The current WeatherHttpClient
      */
-    public static String getResponseFromHttpUrl(URL url) throws IOException {
-        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-        try {
-            InputStream in = urlConnection.getInputStream();
+    public static WeatherHttpClient getHttpClient() {
+        return sHttpClient;
+    }
 
-            Scanner scanner = new Scanner(in);
-            scanner.useDelimiter("\\A");
+    /**
+     * Replaces transport used for all requests to the weather server
+     * i.e. to point the app at a local stand-in server or to measure transport costs
+     *
+     * @param httpClient The WeatherHttpClient to use from now on
+     */
+    public static void setHttpClient(WeatherHttpClient httpClient) {
+        sHttpClient = httpClient;
+    }
 
-            boolean hasInput = scanner.hasNext();
-            if (hasInput) {
-                return scanner.next();
-            } else {
-                return null;
-            }
-        } finally {
-            urlConnection.disconnect();
+    /**
+     * Returns headers every request to the weather server should carry
+     * Requests a gzip body explicitly, so {@link #getResponseStream(WeatherHttpResponse)}
+     *      sees the compressed Content-Length and decompresses while streaming
+     *
+     * @return Mutable map of request headers, callers may add their own
+     */
+    public static Map<String, String> newRequestHeaders() {
+        Map<String, String> requestHeaders = new HashMap<>();
+        requestHeaders.put(HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+
+        return requestHeaders;
+    }
+
+    /**
+     * Returns decoded body of a response requested with {@link #newRequestHeaders()}
+     * Body is gunzipped on the fly when server honoured Accept-Encoding
+     *      and reading fails once more than MAX_RESPONSE_BYTES have been decoded
+     * Error responses (4xx, 5xx) fail like HttpURLConnection#getInputStream does,
+     *      their body is never handed out as if it were a forecast
+     *
+     * @param response Response to read from
+     * @return Stream over the decoded body
+     * @throws IOException Related to network, stream reading, an error status,
+     *                     a missing or an oversized body
+     */
+    public static InputStream getResponseStream(WeatherHttpResponse response)
+            throws IOException {
+        int responseCode = response.getResponseCode();
+        if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            throw new IOException("Server returned HTTP " + responseCode);
+        }
+
+        long contentLength = response.getContentLength();
+        if (contentLength > MAX_RESPONSE_BYTES) {
+            throw new IOException("Response too large: " + contentLength + " bytes");
+        }
+
+        InputStream in = response.getBody();
+        if (in == null) {
+            throw new IOException("Response has no body");
         }
+        if (isGzipEncoded(response)) {
+            in = new GZIPInputStream(in, getGzipBufferSize(contentLength));
+        }
+
+        return new CappedInputStream(in, MAX_RESPONSE_BYTES);
     }
 
     /**
@@ -133,4 +201,61 @@ public final class NetworkUtils {
             return buildUrlWithLocationQuery(locationQuery);
         }
     }
+
+    private static boolean isGzipEncoded(WeatherHttpResponse response) {
+        return ENCODING_GZIP.equalsIgnoreCase(response.getHeader(HEADER_CONTENT_ENCODING));
+    }
+
+    private static int getGzipBufferSize(long contentLength) {
+        if (contentLength <= 0) return MAX_GZIP_BUFFER_BYTES;
+
+        return (int) Math.max(MIN_GZIP_BUFFER_BYTES,
+                Math.min(contentLength, MAX_GZIP_BUFFER_BYTES));
+    }
+
+    /**
+     * Stream that fails instead of reading past a byte limit
+     * Guards against a misbehaving server (or a gzip bomb) filling the heap
+     */
+    private static final class CappedInputStream extends FilterInputStream {
+
+        private final long mLimit;
+        private long mCount;
+
+        CappedInputStream(InputStream in, long limit) {
+            super(in);
+            mLimit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count(1);
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) count(read);
+
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+
+            return skipped;
+        }
+
+        private void count(long read) throws IOException {
+            mCount += read;
+            if (mCount > mLimit) {
+                throw new IOException("Response exceeds " + mLimit + " bytes");
+            }
+        }
+    }
 }
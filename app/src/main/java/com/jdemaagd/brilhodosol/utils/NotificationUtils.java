@@ -21,6 +21,7 @@ import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
 
 public class NotificationUtils {
 
+    /* Columns of the provider's row cache, today's row is served without reading the database */
     public static final String[] WEATHER_NOTIFICATION_PROJECTION = {
             WeatherEntry.COLUMN_WEATHER_ID,
             WeatherEntry.COLUMN_MAX_TEMP,
@@ -0,0 +1,30 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.os.CancellationSignal;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Transport used to download forecasts from the weather server
+ * Keeps NetworkUtils and the sync pipeline independent of how requests are sent,
+ *      so connection reuse, timeouts and test servers can be swapped in
+ */
+public interface WeatherHttpClient {
+
+    /**
+     * Sends a GET request and returns once response headers have been received
+     * Cancelling the signal aborts the request at any point, including while connecting
+     *      and while waiting for the response headers, the call then fails with an IOException
+     *
+     * @param url                The URL to fetch
+     * @param requestHeaders     Headers to send with the request, may be empty
+     * @param cancellationSignal Signal used to abort the request, may be null. Its cancel
+     *                           listener is replaced, and left aborting the returned response.
+     * @return The response, caller must close it
+     * @throws IOException Related to network, including connect and read timeouts
+     */
+    WeatherHttpResponse get(URL url, Map<String, String> requestHeaders,
+                            CancellationSignal cancellationSignal) throws IOException;
+}
@@ -0,0 +1,45 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response returned by a {@link WeatherHttpClient}
+ * Closing it releases the underlying connection back to the client
+ */
+public interface WeatherHttpResponse extends Closeable {
+
+    /**
+     * @return HTTP status code, i.e. 200 or 304
+     */
+    int getResponseCode();
+
+    /**
+     * @param name Case insensitive header name
+     * @return Value of the header, null if not present
+     */
+    String getHeader(String name);
+
+    /**
+     * @return Length of the body as sent on the wire, -1 if unknown
+     */
+    long getContentLength();
+
+    /**
+     * Returns body exactly as sent on the wire, i.e. still gzip encoded
+     *
+     * @return Stream over the body, null if the server sent none (i.e. some error responses)
+     * @throws IOException Related to network and stream reading
+     */
+    InputStream getBody() throws IOException;
+
+    /**
+     * Aborts the exchange by closing the underlying socket, may be called from any thread
+     * A read blocked on the body fails with an IOException, the connection is not reused
+     */
+    void abort();
+
+    @Override
+    void close();
+}
@@ -2,14 +2,44 @@ package com.jdemaagd.brilhodosol.utils;
 
 import android.content.Context;
 import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
 
 import com.jdemaagd.brilhodosol.R;
 import com.jdemaagd.brilhodosol.data.AppPreferences;
 
+import java.util.Locale;
+
 public final class WeatherUtils {
 
     private static final String LOG_TAG = WeatherUtils.class.getSimpleName();
 
+    /*
+     * Dense lookup tables over the OpenWeatherMap condition ids, indexed by id - 200,
+     * 0 marks an unknown id. See http://openweathermap.org/weather-conditions
+     */
+    private static final int MIN_CONDITION_ID = 200;
+    private static final int MAX_CONDITION_ID = 962;
+
+    private static final int[] CONDITION_STRING_IDS = buildConditionStringIds();
+
+    private static final int[] SMALL_ART_IDS = buildArtIds(
+            R.drawable.ic_storm, R.drawable.ic_light_rain, R.drawable.ic_rain, R.drawable.ic_snow,
+            R.drawable.ic_fog, R.drawable.ic_clear, R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy);
+
+    private static final int[] LARGE_ART_IDS = buildArtIds(
+            R.drawable.art_storm, R.drawable.art_light_rain, R.drawable.art_rain,
+            R.drawable.art_snow, R.drawable.art_fog, R.drawable.art_clear,
+            R.drawable.art_light_clouds, R.drawable.art_clouds);
+
+    /* Sectors of 45 degrees clockwise from north */
+    private static final String[] COMPASS_DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    /* Resolved condition strings of the last locale used, replaced when the locale changes */
+    private static volatile ConditionStrings sConditionStrings;
+
     /**
      * This method will convert a temperature from Celsius to Fahrenheit
      *
@@ -32,9 +62,22 @@ public final class WeatherUtils {
      * @return Formatted temperature String in the following form: "21°C"
      */
     public static String formatTemperature(Context context, double temperature) {
+        return formatTemperature(context, temperature, AppPreferences.isMetric(context));
+    }
+
+    /**
+     * Formats a temperature in the given units, for callers formatting many temperatures
+     * that read the units preference once
+     *
+     * @param context     Android Context to access resources
+     * @param temperature Temperature in degrees Celsius (°C)
+     * @param isMetric    true to format in Celsius, false in Fahrenheit
+     * @return Formatted temperature String in the following form: "21°C"
+     */
+    public static String formatTemperature(Context context, double temperature, boolean isMetric) {
         int temperatureFormatResourceId = R.string.format_temperature_celsius;
 
-        if (!AppPreferences.isMetric(context)) {
+        if (!isMetric) {
             temperature = celsiusToFahrenheit(temperature);
             temperatureFormatResourceId = R.string.format_temperature_fahrenheit;
         }
@@ -79,28 +122,26 @@ public final class WeatherUtils {
             windSpeed = .621371192237334f * windSpeed;
         }
 
-        String direction = "Unknown";
-        if (degrees >= 337.5 || degrees < 22.5) {
-            direction = "N";
-        } else if (degrees >= 22.5 && degrees < 67.5) {
-            direction = "NE";
-        } else if (degrees >= 67.5 && degrees < 112.5) {
-            direction = "E";
-        } else if (degrees >= 112.5 && degrees < 157.5) {
-            direction = "SE";
-        } else if (degrees >= 157.5 && degrees < 202.5) {
-            direction = "S";
-        } else if (degrees >= 202.5 && degrees < 247.5) {
-            direction = "SW";
-        } else if (degrees >= 247.5 && degrees < 292.5) {
-            direction = "W";
-        } else if (degrees >= 292.5 && degrees < 337.5) {
-            direction = "NW";
-        }
+        String direction = getCompassDirection(degrees);
 
         return String.format(context.getString(windFormat), windSpeed, direction);
     }
 
+    /**
+     * Returns compass direction of wind, one of 8 sectors of 45 degrees centered on N, NE, ...
+     * Degrees under 22.5 or at least 337.5 (including out of range values) are N
+     *
+     * @param degrees Degrees as measured on a compass
+     * @return Direction ("N", "NE", ...), "Unknown" for NaN
+     */
+    @VisibleForTesting
+    static String getCompassDirection(float degrees) {
+        if (Float.isNaN(degrees)) return "Unknown";
+        if (degrees >= 337.5 || degrees < 22.5) return COMPASS_DIRECTIONS[0];
+
+        return COMPASS_DIRECTIONS[(int) ((degrees + 22.5) / 45)];
+    }
+
     /**
      * Provides string according to weather condition id returned by OWM call
      *
@@ -110,173 +151,19 @@ public final class WeatherUtils {
      * @return String for the weather condition, null if no relation is found
      */
     public static String getStringForWeatherCondition(Context context, int weatherId) {
-        int stringId;
-        if (weatherId >= 200 && weatherId <= 232) {
-            stringId = R.string.condition_2xx;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            stringId = R.string.condition_3xx;
-        } else switch (weatherId) {
-            case 500:
-                stringId = R.string.condition_500;
-                break;
-            case 501:
-                stringId = R.string.condition_501;
-                break;
-            case 502:
-                stringId = R.string.condition_502;
-                break;
-            case 503:
-                stringId = R.string.condition_503;
-                break;
-            case 504:
-                stringId = R.string.condition_504;
-                break;
-            case 511:
-                stringId = R.string.condition_511;
-                break;
-            case 520:
-                stringId = R.string.condition_520;
-                break;
-            case 531:
-                stringId = R.string.condition_531;
-                break;
-            case 600:
-                stringId = R.string.condition_600;
-                break;
-            case 601:
-                stringId = R.string.condition_601;
-                break;
-            case 602:
-                stringId = R.string.condition_602;
-                break;
-            case 611:
-                stringId = R.string.condition_611;
-                break;
-            case 612:
-                stringId = R.string.condition_612;
-                break;
-            case 615:
-                stringId = R.string.condition_615;
-                break;
-            case 616:
-                stringId = R.string.condition_616;
-                break;
-            case 620:
-                stringId = R.string.condition_620;
-                break;
-            case 621:
-                stringId = R.string.condition_621;
-                break;
-            case 622:
-                stringId = R.string.condition_622;
-                break;
-            case 701:
-                stringId = R.string.condition_701;
-                break;
-            case 711:
-                stringId = R.string.condition_711;
-                break;
-            case 721:
-                stringId = R.string.condition_721;
-                break;
-            case 731:
-                stringId = R.string.condition_731;
-                break;
-            case 741:
-                stringId = R.string.condition_741;
-                break;
-            case 751:
-                stringId = R.string.condition_751;
-                break;
-            case 761:
-                stringId = R.string.condition_761;
-                break;
-            case 762:
-                stringId = R.string.condition_762;
-                break;
-            case 771:
-                stringId = R.string.condition_771;
-                break;
-            case 781:
-                stringId = R.string.condition_781;
-                break;
-            case 800:
-                stringId = R.string.condition_800;
-                break;
-            case 801:
-                stringId = R.string.condition_801;
-                break;
-            case 802:
-                stringId = R.string.condition_802;
-                break;
-            case 803:
-                stringId = R.string.condition_803;
-                break;
-            case 804:
-                stringId = R.string.condition_804;
-                break;
-            case 900:
-                stringId = R.string.condition_900;
-                break;
-            case 901:
-                stringId = R.string.condition_901;
-                break;
-            case 902:
-                stringId = R.string.condition_902;
-                break;
-            case 903:
-                stringId = R.string.condition_903;
-                break;
-            case 904:
-                stringId = R.string.condition_904;
-                break;
-            case 905:
-                stringId = R.string.condition_905;
-                break;
-            case 906:
-                stringId = R.string.condition_906;
-                break;
-            case 951:
-                stringId = R.string.condition_951;
-                break;
-            case 952:
-                stringId = R.string.condition_952;
-                break;
-            case 953:
-                stringId = R.string.condition_953;
-                break;
-            case 954:
-                stringId = R.string.condition_954;
-                break;
-            case 955:
-                stringId = R.string.condition_955;
-                break;
-            case 956:
-                stringId = R.string.condition_956;
-                break;
-            case 957:
-                stringId = R.string.condition_957;
-                break;
-            case 958:
-                stringId = R.string.condition_958;
-                break;
-            case 959:
-                stringId = R.string.condition_959;
-                break;
-            case 960:
-                stringId = R.string.condition_960;
-                break;
-            case 961:
-                stringId = R.string.condition_961;
-                break;
-            case 962:
-                stringId = R.string.condition_962;
-                break;
-            default:
-                return context.getString(R.string.condition_unknown, weatherId);
+        int index = weatherId - MIN_CONDITION_ID;
+        if (index < 0 || index >= CONDITION_STRING_IDS.length || CONDITION_STRING_IDS[index] == 0) {
+            return context.getString(R.string.condition_unknown, weatherId);
         }
 
-        return context.getString(stringId);
+        Locale locale = context.getResources().getConfiguration().locale;
+        ConditionStrings conditionStrings = sConditionStrings;
+        if (conditionStrings == null || !conditionStrings.locale.equals(locale)) {
+            conditionStrings = new ConditionStrings(context, locale);
+            sConditionStrings = conditionStrings;
+        }
+
+        return conditionStrings.strings[index];
     }
 
     /**
@@ -290,39 +177,7 @@ public final class WeatherUtils {
      * @return resource id for the corresponding icon -1 if no relation is found
      */
     public static int getSmallArtResourceIdForWeatherCondition(int weatherId) {
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.ic_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.ic_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.ic_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.ic_fog;
-        } else if (weatherId == 761 || weatherId == 771 || weatherId == 781) {
-            return R.drawable.ic_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.ic_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.ic_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.ic_cloudy;
-        } else if (weatherId >= 900 && weatherId <= 906) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 958 && weatherId <= 962) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 951 && weatherId <= 957) {
-            return R.drawable.ic_clear;
-        }
-
-        Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
-
-        return R.drawable.ic_storm;
+        return lookupArt(SMALL_ART_IDS, weatherId, R.drawable.ic_storm);
     }
 
     /**
@@ -336,38 +191,121 @@ public final class WeatherUtils {
      * @return resource ID for the corresponding icon -1 if no relation is found
      */
     public static int getLargeArtResourceIdForWeatherCondition(int weatherId) {
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.art_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.art_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.art_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.art_fog;
-        } else if (weatherId == 761 || weatherId == 771 || weatherId == 781) {
-            return R.drawable.art_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.art_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.art_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.art_clouds;
-        } else if (weatherId >= 900 && weatherId <= 906) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 958 && weatherId <= 962) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 951 && weatherId <= 957) {
-            return R.drawable.art_clear;
+        return lookupArt(LARGE_ART_IDS, weatherId, R.drawable.art_storm);
+    }
+
+    private static int lookupArt(int[] artIds, int weatherId, int unknownArtId) {
+        int index = weatherId - MIN_CONDITION_ID;
+        if (index >= 0 && index < artIds.length && artIds[index] != 0) {
+            return artIds[index];
         }
 
         Log.e(LOG_TAG, "Unknown Weather: " + weatherId);
 
-        return R.drawable.art_storm;
+        return unknownArtId;
+    }
+
+    /*
+     * Sets the entries of the ids in [fromId, toId] that are still unset,
+     * so ranges are applied in order and the first matching range wins
+     */
+    private static void fillUnset(int[] table, int fromId, int toId, int resourceId) {
+        for (int weatherId = fromId; weatherId <= toId; weatherId++) {
+            if (table[weatherId - MIN_CONDITION_ID] == 0) {
+                table[weatherId - MIN_CONDITION_ID] = resourceId;
+            }
+        }
+    }
+
+    private static int[] buildConditionStringIds() {
+        int[] table = new int[MAX_CONDITION_ID - MIN_CONDITION_ID + 1];
+
+        fillUnset(table, 200, 232, R.string.condition_2xx);
+        fillUnset(table, 300, 321, R.string.condition_3xx);
+
+        int[][] conditions = {
+                {500, R.string.condition_500}, {501, R.string.condition_501},
+                {502, R.string.condition_502}, {503, R.string.condition_503},
+                {504, R.string.condition_504}, {511, R.string.condition_511},
+                {520, R.string.condition_520}, {531, R.string.condition_531},
+                {600, R.string.condition_600}, {601, R.string.condition_601},
+                {602, R.string.condition_602}, {611, R.string.condition_611},
+                {612, R.string.condition_612}, {615, R.string.condition_615},
+                {616, R.string.condition_616}, {620, R.string.condition_620},
+                {621, R.string.condition_621}, {622, R.string.condition_622},
+                {701, R.string.condition_701}, {711, R.string.condition_711},
+                {721, R.string.condition_721}, {731, R.string.condition_731},
+                {741, R.string.condition_741}, {751, R.string.condition_751},
+                {761, R.string.condition_761}, {762, R.string.condition_762},
+                {771, R.string.condition_771}, {781, R.string.condition_781},
+                {800, R.string.condition_800}, {801, R.string.condition_801},
+                {802, R.string.condition_802}, {803, R.string.condition_803},
+                {804, R.string.condition_804}, {900, R.string.condition_900},
+                {901, R.string.condition_901}, {902, R.string.condition_902},
+                {903, R.string.condition_903}, {904, R.string.condition_904},
+                {905, R.string.condition_905}, {906, R.string.condition_906},
+                {951, R.string.condition_951}, {952, R.string.condition_952},
+                {953, R.string.condition_953}, {954, R.string.condition_954},
+                {955, R.string.condition_955}, {956, R.string.condition_956},
+                {957, R.string.condition_957}, {958, R.string.condition_958},
+                {959, R.string.condition_959}, {960, R.string.condition_960},
+                {961, R.string.condition_961}, {962, R.string.condition_962}
+        };
+        for (int[] condition : conditions) {
+            fillUnset(table, condition[0], condition[0], condition[1]);
+        }
+
+        return table;
+    }
+
+    private static int[] buildArtIds(int storm, int lightRain, int rain, int snow, int fog,
+                                     int clear, int lightClouds, int clouds) {
+        int[] table = new int[MAX_CONDITION_ID - MIN_CONDITION_ID + 1];
+
+        fillUnset(table, 200, 232, storm);
+        fillUnset(table, 300, 321, lightRain);
+        fillUnset(table, 500, 504, rain);
+        fillUnset(table, 511, 511, snow);
+        fillUnset(table, 520, 531, rain);
+        fillUnset(table, 600, 622, snow);
+        fillUnset(table, 701, 761, fog);
+        fillUnset(table, 771, 771, storm);
+        fillUnset(table, 781, 781, storm);
+        fillUnset(table, 800, 800, clear);
+        fillUnset(table, 801, 801, lightClouds);
+        fillUnset(table, 802, 804, clouds);
+        fillUnset(table, 900, 906, storm);
+        fillUnset(table, 958, 962, storm);
+        fillUnset(table, 951, 957, clear);
+
+        return table;
+    }
+
+    /**
+     * Condition strings of one locale, resolved once for every known id
+     */
+    private static final class ConditionStrings {
+
+        final Locale locale;
+        final String[] strings;
+
+        ConditionStrings(Context context, Locale locale) {
+            this.locale = locale;
+            strings = new String[CONDITION_STRING_IDS.length];
+
+            // Ranges share a string, each resource is only resolved once
+            SparseArray<String> resolved = new SparseArray<>();
+            for (int i = 0; i < CONDITION_STRING_IDS.length; i++) {
+                int stringId = CONDITION_STRING_IDS[i];
+                if (stringId == 0) continue;
+
+                String string = resolved.get(stringId);
+                if (string == null) {
+                    string = context.getString(stringId);
+                    resolved.put(stringId, string);
+                }
+                strings[i] = string;
+            }
+        }
     }
 }
@@ -0,0 +1,137 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.jdemaagd.brilhodosol.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes of AppPreferences are stored right away outside a batch and at its end inside one,
+ *      listeners registered with AppPreferences read the new value through the getters
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AppPreferencesTest {
+
+    private Context mContext;
+    private SharedPreferences mPrefs;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mPrefs.edit().clear().commit();
+        AppPreferences.reloadSnapshot(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        mPrefs.edit().clear().commit();
+    }
+
+    @Test
+    public void writeOutsideBatch_isStoredRightAway() {
+        AppPreferences.setLocationDetails(mContext, 41.1496, -8.611);
+        AppPreferences.saveLastNotificationTime(mContext, 1000L);
+
+        assertEquals(41.1496, storedLatitude(), 0);
+        assertEquals(1000L, storedLastNotificationTime());
+
+        AppPreferences.resetLocationCoordinates(mContext);
+
+        assertFalse(mPrefs.contains(AppPreferences.PREF_COORD_LAT));
+    }
+
+    @Test
+    public void writesInBatch_areStoredAtItsEnd() {
+        AppPreferences.beginBatch();
+        try {
+            AppPreferences.setLocationDetails(mContext, 41.1496, -8.611);
+            AppPreferences.saveLastNotificationTime(mContext, 1000L);
+
+            assertFalse(mPrefs.contains(AppPreferences.PREF_COORD_LAT));
+            assertEquals(0L, storedLastNotificationTime());
+            // Getters see the write before it is stored
+            assertEquals(1000L, AppPreferences.getLastNotificationTimeInMillis(mContext));
+        } finally {
+            AppPreferences.endBatch();
+        }
+
+        assertEquals(41.1496, storedLatitude(), 0);
+        assertEquals(1000L, storedLastNotificationTime());
+    }
+
+    @Test
+    public void heldWrite_survivesOtherChanges() {
+        AppPreferences.beginBatch();
+        try {
+            AppPreferences.saveLastNotificationTime(mContext, 1000L);
+
+            // Settings change while the sync still holds its write
+            mPrefs.edit()
+                    .putString(mContext.getString(R.string.pref_units_key),
+                            mContext.getString(R.string.pref_units_imperial))
+                    .commit();
+
+            assertFalse(AppPreferences.isMetric(mContext));
+            assertEquals(1000L, AppPreferences.getLastNotificationTimeInMillis(mContext));
+        } finally {
+            AppPreferences.endBatch();
+        }
+    }
+
+    @Test
+    public void listener_readsNewValue() {
+        final List<String> seenLocations = new ArrayList<>();
+        SharedPreferences.OnSharedPreferenceChangeListener listener = (prefs, key) ->
+                seenLocations.add(AppPreferences.getPreferredWeatherLocation(mContext));
+
+        AppPreferences.registerOnChangeListener(mContext, listener);
+        try {
+            mPrefs.edit()
+                    .putString(mContext.getString(R.string.pref_location_key), "Porto, PT")
+                    .commit();
+        } finally {
+            AppPreferences.unregisterOnChangeListener(listener);
+        }
+
+        assertEquals(1, seenLocations.size());
+        assertEquals("Porto, PT", seenLocations.get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nestedBatch_fails() {
+        AppPreferences.beginBatch();
+        try {
+            AppPreferences.beginBatch();
+        } finally {
+            AppPreferences.endBatch();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endWithoutBatch_fails() {
+        AppPreferences.endBatch();
+    }
+
+    private double storedLatitude() {
+        return Double.longBitsToDouble(mPrefs.getLong(AppPreferences.PREF_COORD_LAT, 0));
+    }
+
+    private long storedLastNotificationTime() {
+        return mPrefs.getLong(mContext.getString(R.string.pref_last_notification), 0);
+    }
+}
@@ -0,0 +1,71 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.jdemaagd.brilhodosol.utils.HttpValidatorCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Creating the app's database drops the HTTP validators of the last sync,
+ *      creating a database under another name (i.e. a benchmark's) keeps them
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeatherDbHelperTest {
+
+    private static final String OTHER_DATABASE_NAME = "weather_benchmark.db";
+    private static final String ETAG = "\"forecast-1\"";
+
+    private Context mContext;
+    private URL mUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = ApplicationProvider.getApplicationContext();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        mContext.deleteDatabase(OTHER_DATABASE_NAME);
+
+        mUrl = new URL("http://localhost/forecast?q=Porto");
+        HttpValidatorCache.saveValidators(mContext, mUrl, ETAG, null);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        mContext.deleteDatabase(OTHER_DATABASE_NAME);
+        HttpValidatorCache.clear(mContext);
+    }
+
+    @Test
+    public void createAppDatabase_clearsValidators() {
+        new WeatherDbHelper(mContext).getWritableDatabase().close();
+
+        assertNull(storedETag());
+    }
+
+    @Test
+    public void createOtherDatabase_keepsValidators() {
+        new WeatherDbHelper(mContext, OTHER_DATABASE_NAME).getWritableDatabase().close();
+
+        assertEquals(ETAG, storedETag());
+    }
+
+    private String storedETag() {
+        Map<String, String> requestHeaders = new HashMap<>();
+        HttpValidatorCache.applyValidators(mContext, mUrl, requestHeaders);
+
+        return requestHeaders.get("If-None-Match");
+    }
+}
@@ -0,0 +1,201 @@
+package com.jdemaagd.brilhodosol.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.preference.PreferenceManager;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.jdemaagd.brilhodosol.R;
+import com.jdemaagd.brilhodosol.data.WeatherContract.LocationEntry;
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a database created with the v3 schema through WeatherDbHelper
+ *      and checks the cached forecast survives every migration step
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeatherMigrationsTest {
+
+    private static final String PREFERRED_LOCATION = "Porto, PT";
+
+    private static final long DAY_IN_MILLIS = 86400000L;
+
+    /* Normalized dates of the v3 rows, one per day */
+    private static final long[] V3_DAYS = {18500, 18501, 18502};
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .putString(mContext.getString(R.string.pref_location_key), PREFERRED_LOCATION)
+                .commit();
+        AppPreferences.reloadSnapshot(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+    }
+
+    @Test
+    public void upgradeFromV3_keepsRowsOfPreferredLocation() {
+        createV3Database();
+
+        SQLiteDatabase db = new WeatherDbHelper(mContext).getReadableDatabase();
+        try {
+            assertEquals(6, db.getVersion());
+
+            long locationId;
+            Cursor location = db.query(LocationEntry.TABLE_NAME,
+                    new String[]{LocationEntry._ID, LocationEntry.COLUMN_LOCATION_SETTING},
+                    null, null, null, null, null);
+            try {
+                assertEquals(1, location.getCount());
+                assertTrue(location.moveToFirst());
+                locationId = location.getLong(0);
+                assertEquals(PREFERRED_LOCATION, location.getString(1));
+            } finally {
+                location.close();
+            }
+
+            Cursor weather = db.query(WeatherEntry.TABLE_NAME,
+                    new String[]{WeatherEntry.COLUMN_LOCATION_ID, WeatherEntry.COLUMN_DAY,
+                            WeatherEntry.COLUMN_WEATHER_ID, WeatherEntry.COLUMN_MAX_TEMP},
+                    null, null, null, null, WeatherEntry.COLUMN_DAY);
+            try {
+                assertEquals(V3_DAYS.length, weather.getCount());
+                for (int i = 0; i < V3_DAYS.length; i++) {
+                    assertTrue(weather.moveToPosition(i));
+                    assertEquals(locationId, weather.getLong(0));
+                    assertEquals(V3_DAYS[i], weather.getLong(1));
+                    assertEquals(800 + i, weather.getInt(2));
+                    assertEquals(20.0 + i, weather.getDouble(3), 0.0);
+                }
+            } finally {
+                weather.close();
+            }
+
+            assertEquals(1, countTables(db, WeatherEntry.ARCHIVE_TABLE_NAME));
+            assertEquals(0, countRows(db, WeatherEntry.ARCHIVE_TABLE_NAME));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void upgradeWithoutPath_recreatesEmptySchema() {
+        SQLiteDatabase v2 = mContext.openOrCreateDatabase(
+                WeatherDbHelper.DATABASE_NAME, Context.MODE_PRIVATE, null);
+        v2.execSQL("CREATE TABLE weather (_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "date INTEGER NOT NULL)");
+        v2.setVersion(2);
+        v2.close();
+
+        SQLiteDatabase db = new WeatherDbHelper(mContext).getReadableDatabase();
+        try {
+            assertEquals(6, db.getVersion());
+            assertEquals(0, countRows(db, WeatherEntry.TABLE_NAME));
+            assertEquals(0, countRows(db, LocationEntry.TABLE_NAME));
+            assertEquals(1, countTables(db, WeatherEntry.ARCHIVE_TABLE_NAME));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void findPath_chainsEverySupportedStep() {
+        List<WeatherMigration> path = WeatherMigrations.findPath(3, 6);
+
+        assertNotNull(path);
+        assertEquals(3, path.size());
+        assertSame(WeatherMigrations.MIGRATION_3_4, path.get(0));
+        assertSame(WeatherMigrations.MIGRATION_4_5, path.get(1));
+        assertSame(WeatherMigrations.MIGRATION_5_6, path.get(2));
+
+        assertEquals(1, WeatherMigrations.findPath(5, 6).size());
+        assertTrue(WeatherMigrations.findPath(6, 6).isEmpty());
+    }
+
+    @Test
+    public void findPath_returnsNullForUnsupportedVersions() {
+        // Before the first migration
+        assertNull(WeatherMigrations.findPath(1, 6));
+        assertNull(WeatherMigrations.findPath(2, 6));
+        assertNull(WeatherMigrations.findPath(2, 3));
+
+        // Past the last migration
+        assertNull(WeatherMigrations.findPath(3, 7));
+        assertNull(WeatherMigrations.findPath(6, 7));
+    }
+
+    /*
+     * Schema and rows as written by the v3 WeatherDbHelper, frozen like the migrations themselves
+     */
+    private void createV3Database() {
+        SQLiteDatabase db = mContext.openOrCreateDatabase(
+                WeatherDbHelper.DATABASE_NAME, Context.MODE_PRIVATE, null);
+        try {
+            db.execSQL("CREATE TABLE weather ("
+                    + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "date INTEGER NOT NULL, "
+                    + "weather_id INTEGER NOT NULL, "
+                    + "min REAL NOT NULL, "
+                    + "max REAL NOT NULL, "
+                    + "humidity REAL NOT NULL, "
+                    + "pressure REAL NOT NULL, "
+                    + "wind REAL NOT NULL, "
+                    + "degrees REAL NOT NULL, "
+                    + "UNIQUE (date) ON CONFLICT REPLACE)");
+
+            for (int i = 0; i < V3_DAYS.length; i++) {
+                db.execSQL("INSERT INTO weather "
+                                + "(date, weather_id, min, max, humidity, pressure, wind, degrees) "
+                                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                        new Object[]{V3_DAYS[i] * DAY_IN_MILLIS, 800 + i, 10.0 + i, 20.0 + i,
+                                80.0, 1013.0, 3.5, 270.0});
+            }
+
+            db.setVersion(3);
+        } finally {
+            db.close();
+        }
+    }
+
+    private static int countTables(SQLiteDatabase db, String name) {
+        Cursor cursor = db.rawQuery(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{name});
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static int countRows(SQLiteDatabase db, String table) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.jdemaagd.brilhodosol.sync.AdaptiveSyncIntervalPolicy.BASE_INTERVAL_SECONDS;
+import static com.jdemaagd.brilhodosol.sync.AdaptiveSyncIntervalPolicy.MAX_DATA_AGE_SECONDS;
+import static com.jdemaagd.brilhodosol.sync.AdaptiveSyncIntervalPolicy.MAX_INTERVAL_SECONDS;
+import static com.jdemaagd.brilhodosol.sync.AdaptiveSyncIntervalPolicy.MIN_INTERVAL_SECONDS;
+import static org.junit.Assert.*;
+
+public class AdaptiveSyncIntervalPolicyTest {
+
+    private static final long HOUR_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
+    /* No fresh data recorded yet, the data age bound does not apply */
+    private static final long NO_FRESH_DATA = 0;
+
+    private FakeClock mClock;
+    private AdaptiveSyncIntervalPolicy mPolicy;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock(TimeUnit.DAYS.toMillis(20000));
+        mPolicy = new AdaptiveSyncIntervalPolicy(mClock);
+    }
+
+    @Test
+    public void initialInterval_isBase() {
+        assertEquals(BASE_INTERVAL_SECONDS, mPolicy.getInitialIntervalSeconds());
+    }
+
+    @Test
+    public void unchanged_backsOffUpToMax() {
+        long interval = mPolicy.getInitialIntervalSeconds();
+
+        interval = next(SyncOutcome.unchanged(), interval);
+        assertEquals(2 * BASE_INTERVAL_SECONDS, interval);
+
+        interval = next(SyncOutcome.unchanged(), interval);
+        assertEquals(4 * BASE_INTERVAL_SECONDS, interval);
+
+        interval = next(SyncOutcome.unchanged(), interval);
+        assertEquals(MAX_INTERVAL_SECONDS, interval);
+
+        assertEquals(MAX_INTERVAL_SECONDS, next(SyncOutcome.unchanged(), interval));
+    }
+
+    @Test
+    public void failed_keepsCurrentInterval() {
+        assertEquals(BASE_INTERVAL_SECONDS, next(SyncOutcome.failed(), BASE_INTERVAL_SECONDS));
+        assertEquals(8 * HOUR_SECONDS, next(SyncOutcome.failed(), 8 * HOUR_SECONDS));
+    }
+
+    @Test
+    public void failed_outOfRangeInterval_isClamped() {
+        assertEquals(MIN_INTERVAL_SECONDS, next(SyncOutcome.failed(), 60));
+        assertEquals(MAX_INTERVAL_SECONDS, next(SyncOutcome.failed(), 48 * HOUR_SECONDS));
+    }
+
+    @Test
+    public void updated_returnsToBase() {
+        assertEquals(BASE_INTERVAL_SECONDS,
+                next(SyncOutcome.updated(false), MAX_INTERVAL_SECONDS));
+        assertEquals(BASE_INTERVAL_SECONDS,
+                next(SyncOutcome.updated(false), MIN_INTERVAL_SECONDS));
+    }
+
+    @Test
+    public void updatedNearTermVolatile_tightensDownToMin() {
+        long interval = BASE_INTERVAL_SECONDS;
+
+        interval = next(SyncOutcome.updated(true), interval);
+        assertEquals(BASE_INTERVAL_SECONDS / 2, interval);
+
+        interval = next(SyncOutcome.updated(true), interval);
+        assertEquals(MIN_INTERVAL_SECONDS, interval);
+
+        assertEquals(MIN_INTERVAL_SECONDS, next(SyncOutcome.updated(true), interval));
+    }
+
+    @Test
+    public void dataAge_pullsNextSyncIn() {
+        long lastFreshDataMillis = mClock.currentTimeMillis();
+        mClock.advanceSeconds(MAX_DATA_AGE_SECONDS - 5 * HOUR_SECONDS);
+
+        long interval = mPolicy.getNextIntervalSeconds(
+                SyncOutcome.unchanged(), MAX_INTERVAL_SECONDS, lastFreshDataMillis);
+
+        assertEquals(5 * HOUR_SECONDS, interval);
+    }
+
+    @Test
+    public void dataAge_neverBelowMin() {
+        long lastFreshDataMillis = mClock.currentTimeMillis();
+        mClock.advanceSeconds(MAX_DATA_AGE_SECONDS + 5 * HOUR_SECONDS);
+
+        long interval = mPolicy.getNextIntervalSeconds(
+                SyncOutcome.failed(), MAX_INTERVAL_SECONDS, lastFreshDataMillis);
+
+        assertEquals(MIN_INTERVAL_SECONDS, interval);
+    }
+
+    @Test
+    public void dataAge_doesNotExtendInterval() {
+        long lastFreshDataMillis = mClock.currentTimeMillis();
+        mClock.advanceSeconds(HOUR_SECONDS);
+
+        long interval = mPolicy.getNextIntervalSeconds(
+                SyncOutcome.updated(false), BASE_INTERVAL_SECONDS, lastFreshDataMillis);
+
+        assertEquals(BASE_INTERVAL_SECONDS, interval);
+    }
+
+    private long next(SyncOutcome outcome, long currentIntervalSeconds) {
+        return mPolicy.getNextIntervalSeconds(outcome, currentIntervalSeconds, NO_FRESH_DATA);
+    }
+
+    private static final class FakeClock implements SyncClock {
+
+        private long mNowMillis;
+
+        FakeClock(long nowMillis) {
+            mNowMillis = nowMillis;
+        }
+
+        void advanceSeconds(long seconds) {
+            mNowMillis += TimeUnit.SECONDS.toMillis(seconds);
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mNowMillis;
+        }
+    }
+}
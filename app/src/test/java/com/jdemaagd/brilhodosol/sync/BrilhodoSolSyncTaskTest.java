@@ -0,0 +1,180 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract;
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.data.WeatherProvider;
+import com.jdemaagd.brilhodosol.utils.HttpValidatorCache;
+import com.jdemaagd.brilhodosol.utils.LocalWeatherHttpClient;
+import com.jdemaagd.brilhodosol.utils.NetworkUtils;
+import com.jdemaagd.brilhodosol.utils.WeatherHttpClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Conditional syncs end to end: a sync answered with 304 Not Modified stops before
+ *      WeatherProvider, a sync answered with a new forecast writes it and stores its validators
+ *      and a sync answered with an error fails without parsing or writing anything
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BrilhodoSolSyncTaskTest {
+
+    private static final String FORECAST_JSON = "{\"cod\":\"200\","
+            + "\"city\":{\"name\":\"Ann Arbor\",\"coord\":{\"lon\":-83.7457,\"lat\":42.2782}},"
+            + "\"list\":["
+            + "{\"main\":{\"temp_min\":14.5,\"temp_max\":24,\"pressure\":1016.2,\"humidity\":72},"
+            + "\"weather\":[{\"id\":800}],\"wind\":{\"speed\":3.6,\"deg\":310}},"
+            + "{\"main\":{\"temp_min\":13,\"temp_max\":19.25,\"pressure\":1012,\"humidity\":81},"
+            + "\"weather\":[{\"id\":501}],\"wind\":{\"speed\":7,\"deg\":225.5}}"
+            + "]}";
+
+    private static final String ETAG = "\"forecast-1\"";
+
+    private Context mContext;
+    private CountingWeatherProvider mProvider;
+    private WeatherHttpClient mDefaultHttpClient;
+    private LocalWeatherHttpClient mHttpClient;
+    private URL mUrl;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+
+        mProvider = Robolectric.buildContentProvider(CountingWeatherProvider.class)
+                .create(WeatherContract.CONTENT_AUTHORITY)
+                .get();
+        // Opens the database up front, so nothing the sync observes is first-use setup
+        Cursor cursor = mContext.getContentResolver()
+                .query(WeatherEntry.CONTENT_URI, null, null, null, null);
+        if (cursor != null) cursor.close();
+        mProvider.mCalls = 0;
+
+        mDefaultHttpClient = NetworkUtils.getHttpClient();
+        mHttpClient = new LocalWeatherHttpClient();
+        NetworkUtils.setHttpClient(mHttpClient);
+
+        mUrl = NetworkUtils.getUrl(mContext);
+        mHttpClient.enqueue(mUrl, FORECAST_JSON, ETAG);
+    }
+
+    @After
+    public void tearDown() {
+        NetworkUtils.setHttpClient(mDefaultHttpClient);
+        HttpValidatorCache.clear(mContext);
+    }
+
+    @Test
+    public void notModified_stopsBeforeProvider() {
+        HttpValidatorCache.saveValidators(mContext, mUrl, ETAG, null);
+
+        BrilhodoSolSyncTask.syncWeather(mContext);
+
+        assertEquals(1, mHttpClient.getRequestCount());
+        assertEquals(0, mProvider.mCalls);
+        assertEquals(ETAG, storedETag());
+    }
+
+    @Test
+    public void modified_writesForecastAndStoresValidators() {
+        HttpValidatorCache.saveValidators(mContext, mUrl, "\"forecast-0\"", null);
+
+        BrilhodoSolSyncTask.syncWeather(mContext);
+
+        assertEquals(1, mHttpClient.getRequestCount());
+        assertTrue(mProvider.mCalls > 0);
+        assertEquals(ETAG, storedETag());
+
+        // Next sync of the same forecast is answered with 304
+        mProvider.mCalls = 0;
+        BrilhodoSolSyncTask.syncWeather(mContext);
+
+        assertEquals(2, mHttpClient.getRequestCount());
+        assertEquals(0, mProvider.mCalls);
+    }
+
+    @Test
+    public void serverError_failsBeforeProvider() {
+        HttpValidatorCache.saveValidators(mContext, mUrl, "\"forecast-0\"", null);
+        mHttpClient.enqueueError(mUrl, HttpURLConnection.HTTP_UNAVAILABLE,
+                "<html><body>503 Service Unavailable</body></html>");
+
+        BrilhodoSolSyncTask.syncWeather(mContext);
+
+        assertEquals(1, mHttpClient.getRequestCount());
+        assertEquals(0, mProvider.mCalls);
+        assertEquals("\"forecast-0\"", storedETag());
+    }
+
+    private String storedETag() {
+        Map<String, String> requestHeaders = new HashMap<>();
+        HttpValidatorCache.applyValidators(mContext, mUrl, requestHeaders);
+
+        return requestHeaders.get("If-None-Match");
+    }
+
+    /**
+     * WeatherProvider counting every call the sync makes into it
+     */
+    public static class CountingWeatherProvider extends WeatherProvider {
+
+        volatile int mCalls;
+
+        @Override
+        public Cursor query(@NonNull Uri uri, String[] projection, String selection,
+                            String[] selectionArgs, String sortOrder) {
+            mCalls++;
+            return super.query(uri, projection, selection, selectionArgs, sortOrder);
+        }
+
+        @Override
+        public Uri insert(@NonNull Uri uri, ContentValues values) {
+            mCalls++;
+            return super.insert(uri, values);
+        }
+
+        @Override
+        public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+            mCalls++;
+            return super.bulkInsert(uri, values);
+        }
+
+        @Override
+        public int update(@NonNull Uri uri, ContentValues values, String selection,
+                          String[] selectionArgs) {
+            mCalls++;
+            return super.update(uri, values, selection, selectionArgs);
+        }
+
+        @Override
+        public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
+            mCalls++;
+            return super.delete(uri, selection, selectionArgs);
+        }
+
+        @Override
+        public Bundle call(@NonNull String method, String arg, Bundle extras) {
+            mCalls++;
+            return super.call(method, arg, extras);
+        }
+    }
+}
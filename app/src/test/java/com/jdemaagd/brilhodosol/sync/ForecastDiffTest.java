@@ -0,0 +1,106 @@
+package com.jdemaagd.brilhodosol.sync;
+
+import android.content.ContentValues;
+import android.database.MatrixCursor;
+
+import com.jdemaagd.brilhodosol.data.WeatherContract.WeatherEntry;
+import com.jdemaagd.brilhodosol.utils.AppDateUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Near-term volatility drives {@link AdaptiveSyncIntervalPolicy} to sync sooner
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ForecastDiffTest {
+
+    private static final long FIRST_DAY = 18500 * AppDateUtils.DAY_IN_MILLIS;
+
+    @Test
+    public void sameForecast_isUnchanged() {
+        ForecastDiff diff = ForecastDiff.compute(
+                stored(row(0, 800, 10, 20), row(1, 800, 11, 21)),
+                new ContentValues[]{row(0, 800, 10, 20), row(1, 800, 11, 21)});
+
+        assertEquals(0, diff.getRowsTouched());
+        assertFalse(diff.isNearTermVolatile());
+    }
+
+    @Test
+    public void nearTermWeatherChange_isVolatile() {
+        ForecastDiff diff = ForecastDiff.compute(
+                stored(row(0, 800, 10, 20), row(1, 800, 11, 21)),
+                new ContentValues[]{row(0, 800, 10, 20), row(1, 500, 11, 21)});
+
+        assertEquals(1, diff.getChangedRows().length);
+        assertTrue(diff.isNearTermVolatile());
+    }
+
+    @Test
+    public void nearTermTemperatureJump_isVolatile() {
+        ForecastDiff diff = ForecastDiff.compute(
+                stored(row(0, 800, 10, 20)),
+                new ContentValues[]{row(0, 800, 10, 22.5)});
+
+        assertTrue(diff.isNearTermVolatile());
+    }
+
+    @Test
+    public void smallNearTermChange_isNotVolatile() {
+        ForecastDiff diff = ForecastDiff.compute(
+                stored(row(0, 800, 10, 20)),
+                new ContentValues[]{row(0, 800, 10.5, 21)});
+
+        assertEquals(1, diff.getRowsTouched());
+        assertFalse(diff.isNearTermVolatile());
+    }
+
+    @Test
+    public void laterDayChange_isNotVolatile() {
+        ForecastDiff diff = ForecastDiff.compute(
+                stored(row(0, 800, 10, 20), row(5, 800, 10, 20)),
+                new ContentValues[]{row(0, 800, 10, 20), row(5, 200, 0, 30)});
+
+        assertEquals(1, diff.getRowsTouched());
+        assertFalse(diff.isNearTermVolatile());
+    }
+
+    @Test
+    public void droppedDay_isStale() {
+        ForecastDiff diff = ForecastDiff.compute(
+                stored(row(0, 800, 10, 20), row(1, 800, 10, 20)),
+                new ContentValues[]{row(1, 800, 10, 20)});
+
+        assertArrayEquals(new long[]{FIRST_DAY}, diff.getStaleDates());
+        assertFalse(diff.isNearTermVolatile());
+    }
+
+    private static ContentValues row(int dayOffset, int weatherId, double min, double max) {
+        ContentValues values = new ContentValues();
+        values.put(WeatherEntry.COLUMN_DATE, FIRST_DAY + dayOffset * AppDateUtils.DAY_IN_MILLIS);
+        values.put(WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+        values.put(WeatherEntry.COLUMN_MIN_TEMP, min);
+        values.put(WeatherEntry.COLUMN_MAX_TEMP, max);
+        values.put(WeatherEntry.COLUMN_HUMIDITY, 80.0);
+        values.put(WeatherEntry.COLUMN_PRESSURE, 1013.0);
+        values.put(WeatherEntry.COLUMN_WIND_SPEED, 3.5);
+        values.put(WeatherEntry.COLUMN_DEGREES, 270.0);
+        return values;
+    }
+
+    private static MatrixCursor stored(ContentValues... rows) {
+        MatrixCursor cursor = new MatrixCursor(ForecastDiff.STORED_FORECAST_PROJECTION);
+        for (ContentValues row : rows) {
+            Object[] columns = new Object[ForecastDiff.STORED_FORECAST_PROJECTION.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = row.get(ForecastDiff.STORED_FORECAST_PROJECTION[i]);
+            }
+            cursor.addRow(columns);
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,155 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.jdemaagd.brilhodosol.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Label rules of {@link AppDateUtils#getFriendlyDateString}, served by DateLabelCache
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DateLabelCacheTest {
+
+    private static final long DAY = AppDateUtils.DAY_IN_MILLIS;
+
+    /* Wednesday, June 24 2020, normalized */
+    private static final long TODAY = 18437 * DAY;
+    private static final long NOW = TODAY + 10 * AppDateUtils.HOUR_IN_MILLIS;
+
+    private static final int FULL_DATE_FLAGS = DateUtils.FORMAT_SHOW_DATE
+            | DateUtils.FORMAT_NO_YEAR
+            | DateUtils.FORMAT_SHOW_WEEKDAY;
+
+    private static final int ABBREV_DATE_FLAGS = FULL_DATE_FLAGS | DateUtils.FORMAT_ABBREV_ALL;
+
+    private Context mContext;
+    private DateLabelCache mCache;
+
+    private TimeZone mDefaultTimeZone;
+    private Locale mDefaultLocale;
+
+    @Before
+    public void setUp() {
+        mDefaultTimeZone = TimeZone.getDefault();
+        mDefaultLocale = Locale.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        Locale.setDefault(Locale.US);
+
+        mContext = ApplicationProvider.getApplicationContext();
+        mCache = new DateLabelCache();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultTimeZone);
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void today_replacesDayNameWithToday() {
+        String expected = fullDate(TODAY).replace("Wednesday", mContext.getString(R.string.today));
+
+        assertEquals(expected, label(TODAY, false));
+        assertEquals(expected, label(TODAY, true));
+        assertTrue(expected.startsWith(mContext.getString(R.string.today)));
+    }
+
+    @Test
+    public void tomorrow_isTomorrow() {
+        String tomorrow = mContext.getString(R.string.tomorrow);
+
+        assertEquals(tomorrow, label(TODAY + DAY, false));
+        assertEquals(fullDate(TODAY + DAY).replace("Thursday", tomorrow),
+                label(TODAY + DAY, true));
+    }
+
+    @Test
+    public void nextSixDays_areDayNames() {
+        String[] expected = {
+                mContext.getString(R.string.tomorrow),
+                "Friday", "Saturday", "Sunday", "Monday", "Tuesday"
+        };
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], label(TODAY + (i + 1) * DAY, false));
+        }
+    }
+
+    @Test
+    public void laterDates_areAbbreviatedDates() {
+        for (int i = 7; i < 14; i++) {
+            long date = TODAY + i * DAY;
+            assertEquals(abbreviatedDate(date), label(date, false));
+        }
+    }
+
+    @Test
+    public void laterDates_showFullDate_areFullDates() {
+        long date = TODAY + 10 * DAY;
+
+        assertEquals(fullDate(date), label(date, true));
+    }
+
+    @Test
+    public void pastDay_showFullDate_keepsDayName() {
+        long yesterday = TODAY - DAY;
+
+        assertEquals(fullDate(yesterday), label(yesterday, true));
+        assertTrue(label(yesterday, true).contains("Tuesday"));
+    }
+
+    @Test
+    public void pastDay_isDayName() {
+        assertEquals("Tuesday", label(TODAY - DAY, false));
+    }
+
+    @Test
+    public void midnightRollover_rebuildsLabels() {
+        long tomorrow = TODAY + DAY;
+        long lastMillisOfToday = TODAY + DAY - 1;
+        String todayLabel = mContext.getString(R.string.today);
+
+        assertEquals(mContext.getString(R.string.tomorrow),
+                mCache.getLabel(mContext, tomorrow, false, lastMillisOfToday));
+        assertTrue(mCache.getLabel(mContext, TODAY, false, lastMillisOfToday)
+                .startsWith(todayLabel));
+
+        // First lookup of the new day, cached labels of the previous day must not be served
+        assertTrue(mCache.getLabel(mContext, tomorrow, false, tomorrow)
+                .startsWith(todayLabel));
+        assertEquals("Wednesday", mCache.getLabel(mContext, TODAY, false, tomorrow));
+    }
+
+    @Test
+    public void repeatedLookup_returnsSameLabel() {
+        String first = label(TODAY + 3 * DAY, false);
+
+        assertSame(first, label(TODAY + 3 * DAY, false));
+    }
+
+    private String label(long date, boolean showFullDate) {
+        return mCache.getLabel(mContext, date, showFullDate, NOW);
+    }
+
+    private String fullDate(long date) {
+        return DateUtils.formatDateTime(mContext, date, FULL_DATE_FLAGS);
+    }
+
+    private String abbreviatedDate(long date) {
+        return DateUtils.formatDateTime(mContext, date, ABBREV_DATE_FLAGS);
+    }
+}
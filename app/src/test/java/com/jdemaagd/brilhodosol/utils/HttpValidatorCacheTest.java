@@ -0,0 +1,140 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Conditional requests of a sync against {@link LocalWeatherHttpClient}:
+ *      validators of a 200 are stored, sent back on the next request and answered with 304
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HttpValidatorCacheTest {
+
+    private static final String FORECAST_JSON = "{\"cod\":\"200\",\"list\":[]}";
+    private static final String ETAG = "\"forecast-1\"";
+    private static final String LAST_MODIFIED = "Wed, 24 Jun 2020 06:00:00 GMT";
+
+    private Context mContext;
+    private LocalWeatherHttpClient mHttpClient;
+    private URL mUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = ApplicationProvider.getApplicationContext();
+        HttpValidatorCache.clear(mContext);
+
+        mUrl = new URL("http://localhost/forecast?q=Porto");
+        mHttpClient = new LocalWeatherHttpClient();
+        mHttpClient.enqueue(mUrl, FORECAST_JSON, ETAG);
+    }
+
+    @Test
+    public void firstSync_sendsNoValidators() {
+        Map<String, String> requestHeaders = NetworkUtils.newRequestHeaders();
+        HttpValidatorCache.applyValidators(mContext, mUrl, requestHeaders);
+
+        assertFalse(requestHeaders.containsKey("If-None-Match"));
+        assertFalse(requestHeaders.containsKey("If-Modified-Since"));
+    }
+
+    @Test
+    public void eTag_roundTrip_answeredWithNotModified() throws Exception {
+        WeatherHttpResponse first = get();
+        assertEquals(HttpURLConnection.HTTP_OK, first.getResponseCode());
+        String eTag = HttpValidatorCache.getETag(first);
+        assertEquals(ETAG, eTag);
+
+        HttpValidatorCache.saveValidators(mContext, mUrl, eTag,
+                HttpValidatorCache.getLastModified(first));
+
+        WeatherHttpResponse second = get();
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, second.getResponseCode());
+        assertEquals(0, second.getContentLength());
+        assertEquals(2, mHttpClient.getRequestCount());
+    }
+
+    @Test
+    public void changedForecast_servedInFull() throws Exception {
+        HttpValidatorCache.saveValidators(mContext, mUrl, ETAG, null);
+        mHttpClient.enqueue(mUrl, FORECAST_JSON, "\"forecast-2\"");
+
+        WeatherHttpResponse response = get();
+
+        assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+        assertEquals("\"forecast-2\"", HttpValidatorCache.getETag(response));
+    }
+
+    @Test
+    public void applyValidators_addsBothHeaders() {
+        HttpValidatorCache.saveValidators(mContext, mUrl, ETAG, LAST_MODIFIED);
+
+        Map<String, String> requestHeaders = NetworkUtils.newRequestHeaders();
+        HttpValidatorCache.applyValidators(mContext, mUrl, requestHeaders);
+
+        assertEquals(ETAG, requestHeaders.get("If-None-Match"));
+        assertEquals(LAST_MODIFIED, requestHeaders.get("If-Modified-Since"));
+        assertEquals("gzip", requestHeaders.get("Accept-Encoding"));
+    }
+
+    @Test
+    public void lastModifiedOnly_addsIfModifiedSince() {
+        HttpValidatorCache.saveValidators(mContext, mUrl, null, LAST_MODIFIED);
+
+        Map<String, String> requestHeaders = NetworkUtils.newRequestHeaders();
+        HttpValidatorCache.applyValidators(mContext, mUrl, requestHeaders);
+
+        assertFalse(requestHeaders.containsKey("If-None-Match"));
+        assertEquals(LAST_MODIFIED, requestHeaders.get("If-Modified-Since"));
+    }
+
+    @Test
+    public void otherUrl_sendsNoValidators() throws Exception {
+        HttpValidatorCache.saveValidators(mContext, mUrl, ETAG, LAST_MODIFIED);
+
+        URL otherUrl = new URL("http://localhost/forecast?q=Lisbon");
+        mHttpClient.enqueue(otherUrl, FORECAST_JSON, ETAG);
+
+        Map<String, String> requestHeaders = NetworkUtils.newRequestHeaders();
+        HttpValidatorCache.applyValidators(mContext, otherUrl, requestHeaders);
+
+        assertFalse(requestHeaders.containsKey("If-None-Match"));
+        assertEquals(HttpURLConnection.HTTP_OK,
+                mHttpClient.get(otherUrl, requestHeaders, null).getResponseCode());
+    }
+
+    @Test
+    public void clear_forcesFullDownload() throws Exception {
+        HttpValidatorCache.saveValidators(mContext, mUrl, ETAG, LAST_MODIFIED);
+        HttpValidatorCache.clear(mContext);
+
+        assertEquals(HttpURLConnection.HTTP_OK, get().getResponseCode());
+    }
+
+    @Test
+    public void responseWithoutValidators_clearsStoredOnes() throws Exception {
+        HttpValidatorCache.saveValidators(mContext, mUrl, ETAG, LAST_MODIFIED);
+        HttpValidatorCache.saveValidators(mContext, mUrl, null, null);
+
+        assertEquals(HttpURLConnection.HTTP_OK, get().getResponseCode());
+    }
+
+    /* Request of a sync, with the validators stored so far */
+    private WeatherHttpResponse get() throws Exception {
+        Map<String, String> requestHeaders = NetworkUtils.newRequestHeaders();
+        HttpValidatorCache.applyValidators(mContext, mUrl, requestHeaders);
+
+        return mHttpClient.get(mUrl, requestHeaders, null);
+    }
+}
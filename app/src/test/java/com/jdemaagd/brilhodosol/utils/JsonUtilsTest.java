@@ -0,0 +1,150 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * The streaming parser of JsonUtils gives the same rows as the JSONObject parser it replaced,
+ *      see {@link LegacyJsonUtils}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class JsonUtilsTest {
+
+    private static final String CITY = "\"city\":{\"id\":2735943,\"name\":\"Porto\","
+            + "\"coord\":{\"lon\":-8.611,\"lat\":41.1496}}";
+
+    private static final String LIST = "\"list\":["
+            + "{\"dt\":1593000000,\"main\":{\"temp_min\":14.5,\"temp_max\":24,\"pressure\":1016.2,"
+            + "\"humidity\":72},\"weather\":[{\"id\":800,\"main\":\"Clear\"}],"
+            + "\"wind\":{\"speed\":3.6,\"deg\":310}},"
+            + "{\"main\":{\"humidity\":81,\"pressure\":1012,\"temp_max\":19.25,\"temp_min\":13},"
+            + "\"wind\":{\"deg\":225.5,\"speed\":7},\"clouds\":{\"all\":90},"
+            + "\"weather\":[{\"id\":501,\"description\":\"moderate rain\"},{\"id\":701}]},"
+            + "{\"weather\":[{\"id\":211}],\"wind\":{\"speed\":0,\"deg\":0},"
+            + "\"main\":{\"temp_max\":-2.5,\"temp_min\":-10,\"pressure\":990.75,\"humidity\":100}}"
+            + "]";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void stringCode_cityAfterList() throws Exception {
+        ContentValues[] rows = assertParsersAgree("{\"cod\":\"200\",\"message\":0," + LIST + ","
+                + CITY + ",\"cnt\":3}");
+
+        assertEquals(3, rows.length);
+    }
+
+    @Test
+    public void intCode_cityBeforeList() throws Exception {
+        ContentValues[] rows = assertParsersAgree("{" + CITY + ",\"cod\":200," + LIST + "}");
+
+        assertEquals(3, rows.length);
+    }
+
+    @Test
+    public void noCode() throws Exception {
+        assertParsersAgree("{" + LIST + "," + CITY + "}");
+    }
+
+    @Test
+    public void emptyList() throws Exception {
+        ContentValues[] rows = assertParsersAgree("{\"cod\":\"200\",\"list\":[]," + CITY + "}");
+
+        assertEquals(0, rows.length);
+    }
+
+    @Test
+    public void errorCodes_returnNull() throws Exception {
+        String[] errors = {
+                "{\"cod\":\"404\",\"message\":\"city not found\"}",
+                "{\"message\":\"city not found\",\"cod\":404}",
+                "{\"cod\":401,\"message\":\"Invalid API key\"}",
+                "{\"cod\":\"500\"," + LIST + "," + CITY + "}"
+        };
+
+        for (String error : errors) {
+            assertNull(error, LegacyJsonUtils.getWeatherContentValuesFromJson(mContext, error));
+            assertNull(error, parseStream(error));
+        }
+    }
+
+    @Test
+    public void missingColumn_fails() {
+        String json = "{\"cod\":\"200\",\"list\":[{\"main\":{\"temp_min\":14.5,\"temp_max\":24,"
+                + "\"pressure\":1016.2},\"weather\":[{\"id\":800}],"
+                + "\"wind\":{\"speed\":3.6,\"deg\":310}}]," + CITY + "}";
+
+        assertBothFail(json);
+    }
+
+    @Test
+    public void missingWeatherCondition_fails() {
+        assertBothFail("{\"list\":[{\"main\":{\"temp_min\":14.5,\"temp_max\":24,"
+                + "\"pressure\":1016.2,\"humidity\":72},\"weather\":[],"
+                + "\"wind\":{\"speed\":3.6,\"deg\":310}}]," + CITY + "}");
+    }
+
+    @Test
+    public void missingCity_fails() {
+        assertBothFail("{\"cod\":\"200\"," + LIST + "}");
+        assertBothFail("{\"cod\":\"200\"," + LIST + ",\"city\":{\"coord\":{\"lat\":41.1496}}}");
+    }
+
+    @Test
+    public void missingList_fails() {
+        assertBothFail("{\"cod\":\"200\"," + CITY + "}");
+    }
+
+    private ContentValues[] assertParsersAgree(String json) throws Exception {
+        ContentValues[] expected = LegacyJsonUtils.getWeatherContentValuesFromJson(mContext, json);
+        ContentValues[] actual = parseStream(json);
+
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("row " + i, expected[i], actual[i]);
+        }
+
+        return actual;
+    }
+
+    private void assertBothFail(String json) {
+        try {
+            LegacyJsonUtils.getWeatherContentValuesFromJson(mContext, json);
+            fail("JSONObject parser accepted " + json);
+        } catch (JSONException expected) {
+            // The reference rejects it, so must the streaming parser
+        }
+
+        try {
+            parseStream(json);
+            fail("Streaming parser accepted " + json);
+        } catch (IOException expected) {
+            // Rejected as well
+        }
+    }
+
+    private ContentValues[] parseStream(String json) throws IOException {
+        return JsonUtils.getWeatherContentValuesFromStream(mContext,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,156 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.os.CancellationSignal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-process stand-in for the weather server
+ * Serves canned bodies and errors registered per URL,
+ *      honours Accept-Encoding: gzip and If-None-Match,
+ *      and counts requests so tests can assert on transport usage without a network
+ */
+public final class LocalWeatherHttpClient implements WeatherHttpClient {
+
+    private final Map<String, String> mBodies = new HashMap<>();
+    private final Map<String, String> mETags = new HashMap<>();
+    private final Map<String, Integer> mResponseCodes = new HashMap<>();
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    /**
+     * Registers body served for a URL
+     *
+     * @param url  URL the body is served for
+     * @param body JSON body, sent with status 200
+     * @param eTag ETag sent with the body, may be null
+     */
+    public synchronized void enqueue(URL url, String body, String eTag) {
+        mBodies.put(url.toString(), body);
+        mETags.put(url.toString(), eTag);
+        mResponseCodes.put(url.toString(), HttpURLConnection.HTTP_OK);
+    }
+
+    /**
+     * Registers error served for a URL, i.e. the HTML page of a failing proxy
+     *
+     * @param url          URL the error is served for
+     * @param responseCode HTTP status of the error
+     * @param body         Body sent with the error
+     */
+    public synchronized void enqueueError(URL url, int responseCode, String body) {
+        mBodies.put(url.toString(), body);
+        mETags.remove(url.toString());
+        mResponseCodes.put(url.toString(), responseCode);
+    }
+
+    /**
+     * @return Number of requests received so far
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    @Override
+    public synchronized WeatherHttpResponse get(URL url, Map<String, String> requestHeaders,
+                                                CancellationSignal cancellationSignal)
+            throws IOException {
+        mRequestCount.incrementAndGet();
+        if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+            throw new IOException("Request cancelled");
+        }
+
+        String body = mBodies.get(url.toString());
+        if (body == null) {
+            return new Response(HttpURLConnection.HTTP_NOT_FOUND, new HashMap<>(),
+                    "{\"cod\":\"404\",\"message\":\"city not found\"}"
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+
+        int responseCode = mResponseCodes.get(url.toString());
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            return new Response(responseCode, new HashMap<>(),
+                    body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<String, String> responseHeaders = new HashMap<>();
+        String eTag = mETags.get(url.toString());
+        if (eTag != null) {
+            responseHeaders.put("etag", eTag);
+            if (eTag.equals(header(requestHeaders, "If-None-Match"))) {
+                return new Response(HttpURLConnection.HTTP_NOT_MODIFIED, responseHeaders,
+                        new byte[0]);
+            }
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if ("gzip".equalsIgnoreCase(header(requestHeaders, "Accept-Encoding"))) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(bytes);
+            gzip.close();
+            bytes = compressed.toByteArray();
+            responseHeaders.put("content-encoding", "gzip");
+        }
+
+        return new Response(HttpURLConnection.HTTP_OK, responseHeaders, bytes);
+    }
+
+    private static String header(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) return header.getValue();
+        }
+
+        return null;
+    }
+
+    private static final class Response implements WeatherHttpResponse {
+
+        private final int mResponseCode;
+        private final Map<String, String> mHeaders;
+        private final byte[] mBody;
+
+        Response(int responseCode, Map<String, String> headers, byte[] body) {
+            mResponseCode = responseCode;
+            mHeaders = headers;
+            mBody = body;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return mResponseCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mHeaders.get(name.toLowerCase(Locale.US));
+        }
+
+        @Override
+        public long getContentLength() {
+            return mBody.length;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(mBody);
+        }
+
+        @Override
+        public void abort() { }
+
+        @Override
+        public void close() { }
+    }
+}
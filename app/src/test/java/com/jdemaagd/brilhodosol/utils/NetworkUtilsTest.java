@@ -0,0 +1,155 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Response decoding of NetworkUtils over {@link LocalWeatherHttpClient}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NetworkUtilsTest {
+
+    private static final String FORECAST_JSON = "{\"cod\":\"200\",\"city\":{\"name\":\"Porto\"}}";
+
+    /* Decoded size of the response that must be rejected, above MAX_RESPONSE_BYTES */
+    private static final int OVERSIZED_BYTES = 300 * 1024;
+
+    private LocalWeatherHttpClient mHttpClient;
+    private URL mUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mHttpClient = new LocalWeatherHttpClient();
+        mUrl = new URL("http://localhost/forecast?q=Porto");
+        mHttpClient.enqueue(mUrl, FORECAST_JSON, null);
+    }
+
+    @Test
+    public void getResponseStream_gunzipsWhileStreaming() throws Exception {
+        WeatherHttpResponse response =
+                mHttpClient.get(mUrl, NetworkUtils.newRequestHeaders(), null);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+
+        assertEquals(FORECAST_JSON, readFully(NetworkUtils.getResponseStream(response)));
+    }
+
+    @Test
+    public void getResponseStream_identityBody() throws Exception {
+        WeatherHttpResponse response = mHttpClient.get(mUrl, new HashMap<>(), null);
+        assertNull(response.getHeader("Content-Encoding"));
+
+        assertEquals(FORECAST_JSON, readFully(NetworkUtils.getResponseStream(response)));
+    }
+
+    @Test(expected = IOException.class)
+    public void getResponseStream_notFound_fails() throws Exception {
+        URL unknownUrl = new URL("http://localhost/forecast?q=Atlantis");
+
+        NetworkUtils.getResponseStream(
+                mHttpClient.get(unknownUrl, NetworkUtils.newRequestHeaders(), null));
+    }
+
+    @Test(expected = IOException.class)
+    public void getResponseStream_serverError_fails() throws Exception {
+        mHttpClient.enqueueError(mUrl, HttpURLConnection.HTTP_BAD_GATEWAY,
+                "<html><body>502 Bad Gateway</body></html>");
+
+        NetworkUtils.getResponseStream(
+                mHttpClient.get(mUrl, NetworkUtils.newRequestHeaders(), null));
+    }
+
+    @Test(expected = IOException.class)
+    public void getResponseStream_missingBody_fails() throws Exception {
+        NetworkUtils.getResponseStream(new StubResponse(-1, null));
+    }
+
+    @Test(expected = IOException.class)
+    public void getResponseStream_oversizedContentLength_fails() throws Exception {
+        NetworkUtils.getResponseStream(new StubResponse(OVERSIZED_BYTES, new byte[0]));
+    }
+
+    @Test
+    public void getResponseStream_oversizedDecodedBody_fails() throws Exception {
+        char[] padding = new char[OVERSIZED_BYTES];
+        Arrays.fill(padding, ' ');
+        mHttpClient.enqueue(mUrl, "{" + new String(padding) + "}", null);
+
+        // Compresses to a few hundred bytes, only the decoded size gives it away
+        WeatherHttpResponse response =
+                mHttpClient.get(mUrl, NetworkUtils.newRequestHeaders(), null);
+        assertTrue(response.getContentLength() < OVERSIZED_BYTES);
+
+        InputStream in = NetworkUtils.getResponseStream(response);
+        try {
+            readFully(in);
+            fail("Read past the response cap");
+        } catch (IOException expected) {
+            // Capped while streaming
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+
+        return body.toString(StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * Response with a fixed Content-Length and body, i.e. an error without a body
+     */
+    private static final class StubResponse implements WeatherHttpResponse {
+
+        private final long mContentLength;
+        private final byte[] mBody;
+
+        StubResponse(long contentLength, byte[] body) {
+            mContentLength = contentLength;
+            mBody = body;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return HttpURLConnection.HTTP_OK;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public long getContentLength() {
+            return mContentLength;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return mBody == null ? null : new ByteArrayInputStream(mBody);
+        }
+
+        @Override
+        public void abort() { }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -0,0 +1,130 @@
+package com.jdemaagd.brilhodosol.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.jdemaagd.brilhodosol.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * The lookup tables of WeatherUtils give the same results as the chains they replaced,
+ *      see {@link LegacyWeatherUtils}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeatherUtilsTest {
+
+    /* Every condition id the tables cover, and the ids around them */
+    private static final int FIRST_CONDITION_ID = 200;
+    private static final int LAST_CONDITION_ID = 962;
+
+    private static final int[] OUT_OF_RANGE_IDS = {
+            Integer.MIN_VALUE, -1, 0, 1, 100, 199, 963, 1000, Integer.MAX_VALUE
+    };
+
+    /* 761 is both fog (701..761) and storm in the old chains, the first match, fog, wins */
+    private static final int[] OVERLAPPING_IDS = {761, 771, 781};
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void conditionIds_matchLegacyChains() {
+        for (int weatherId = FIRST_CONDITION_ID; weatherId <= LAST_CONDITION_ID; weatherId++) {
+            assertSameAsLegacy(weatherId);
+        }
+    }
+
+    @Test
+    public void outOfRangeIds_matchLegacyChains() {
+        for (int weatherId : OUT_OF_RANGE_IDS) {
+            assertSameAsLegacy(weatherId);
+        }
+    }
+
+    @Test
+    public void overlappingIds_matchLegacyChains() {
+        for (int weatherId : OVERLAPPING_IDS) {
+            assertSameAsLegacy(weatherId);
+        }
+
+        assertEquals(R.drawable.ic_fog,
+                WeatherUtils.getSmallArtResourceIdForWeatherCondition(761));
+        assertEquals(R.drawable.art_fog,
+                WeatherUtils.getLargeArtResourceIdForWeatherCondition(761));
+        assertEquals(R.drawable.ic_storm,
+                WeatherUtils.getSmallArtResourceIdForWeatherCondition(771));
+        assertEquals(R.drawable.art_storm,
+                WeatherUtils.getLargeArtResourceIdForWeatherCondition(781));
+    }
+
+    @Test
+    public void compassDirection_atEverySectorBoundary() {
+        // 22.5 degree steps hit every boundary and the center of every sector
+        for (int step = 0; step <= 16; step++) {
+            float degrees = step * 22.5f;
+            assertSameDirection(degrees);
+            assertSameDirection(Math.nextDown(degrees));
+            assertSameDirection(Math.nextUp(degrees));
+        }
+    }
+
+    @Test
+    public void compassDirection_sectors() {
+        assertEquals("N", WeatherUtils.getCompassDirection(0f));
+        assertEquals("NE", WeatherUtils.getCompassDirection(22.5f));
+        assertEquals("N", WeatherUtils.getCompassDirection(Math.nextDown(22.5f)));
+        assertEquals("E", WeatherUtils.getCompassDirection(90f));
+        assertEquals("S", WeatherUtils.getCompassDirection(180f));
+        assertEquals("W", WeatherUtils.getCompassDirection(270f));
+        assertEquals("NW", WeatherUtils.getCompassDirection(Math.nextDown(337.5f)));
+        assertEquals("N", WeatherUtils.getCompassDirection(337.5f));
+    }
+
+    @Test
+    public void compassDirection_outOfRangeValues() {
+        float[] values = {-0.1f, -22.5f, -45f, -180f, -360f, -1000f, 360f, 400f, 1000f,
+                Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY};
+
+        for (float degrees : values) {
+            assertSameDirection(degrees);
+            assertEquals("N", WeatherUtils.getCompassDirection(degrees));
+        }
+    }
+
+    @Test
+    public void compassDirection_nan_isUnknown() {
+        assertSameDirection(Float.NaN);
+        assertEquals("Unknown", WeatherUtils.getCompassDirection(Float.NaN));
+    }
+
+    private void assertSameAsLegacy(int weatherId) {
+        String message = "weatherId " + weatherId;
+
+        assertEquals(message,
+                LegacyWeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId),
+                WeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId));
+        assertEquals(message,
+                LegacyWeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId),
+                WeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId));
+        assertEquals(message,
+                LegacyWeatherUtils.getStringForWeatherCondition(mContext, weatherId),
+                WeatherUtils.getStringForWeatherCondition(mContext, weatherId));
+    }
+
+    private static void assertSameDirection(float degrees) {
+        assertEquals("degrees " + degrees,
+                LegacyWeatherUtils.getCompassDirection(degrees),
+                WeatherUtils.getCompassDirection(degrees));
+    }
+}